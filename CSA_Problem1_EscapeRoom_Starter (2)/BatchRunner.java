@@ -0,0 +1,30 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+
+// plays a recorded command script against a seeded dungeon with every game
+// message switched off, for regression checks and load analysis
+public class BatchRunner
+{
+  // one session per script; lines after the game ends are ignored
+  public static GameSession run(long seed, int gridW, int gridH, BufferedReader script) throws IOException
+  {
+    DungeonEngine engine = new DungeonEngine(gridW, gridH);
+    GameSession session = new GameSession(engine, "Gryffindor", null);
+    engine.createBoard(seed);
+    String line;
+    while (session.isPlaying() && (line = script.readLine()) != null) {
+      String command = line.trim().toLowerCase();
+      if (!command.isEmpty()) {
+        session.processCommand(command);
+      }
+    }
+    return session;
+  }
+
+  public static String summary(GameSession session)
+  {
+    return "seed=" + session.getEngine().getSeed() + " score=" + session.getScore()
+        + " points=" + session.getPoints() + " steps=" + session.getSteps()
+        + " outcome=" + session.getOutcome();
+  }
+}
@@ -0,0 +1,106 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// least recently used boards keyed by seed, size and object counts, so the
+// same seed (a replayed benchmark, the daily challenge) is not generated twice
+public class BoardCache
+{
+  // shared by every engine in this JVM
+  private static final BoardCache SHARED = new BoardCache(64, 8_000_000L);
+
+  private final int maxBoards;
+  private final long maxInts;
+  private long totalInts;
+  private final LinkedHashMap<Key, BoardLayout> boards = new LinkedHashMap<Key, BoardLayout>(16, 0.75f, true);
+  private long hits;
+  private long misses;
+
+  public BoardCache(int maxBoards, long maxInts)
+  {
+    this.maxBoards = maxBoards;
+    this.maxInts = maxInts;
+  }
+
+  public static BoardCache shared()
+  {
+    return SHARED;
+  }
+
+  public synchronized BoardLayout get(long seed, int width, int height, int walls, int prizes,
+                                      int traps, int rocks, int barriers)
+  {
+    BoardLayout layout = boards.get(new Key(seed, width, height, walls, prizes, traps, rocks, barriers));
+    if (layout != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return layout;
+  }
+
+  public synchronized void put(BoardLayout layout, int walls, int prizes, int traps, int rocks, int barriers)
+  {
+    // a board bigger than the whole cache would only push everything else out
+    if (layout.size() > maxInts) {
+      return;
+    }
+    Key key = new Key(layout.getSeed(), layout.getWidth(), layout.getHeight(), walls, prizes, traps, rocks, barriers);
+    BoardLayout old = boards.put(key, layout);
+    if (old != null) {
+      totalInts -= old.size();
+    }
+    totalInts += layout.size();
+
+    Iterator<Map.Entry<Key, BoardLayout>> eldest = boards.entrySet().iterator();
+    while ((boards.size() > maxBoards || totalInts > maxInts) && eldest.hasNext()) {
+      totalInts -= eldest.next().getValue().size();
+      eldest.remove();
+    }
+  }
+
+  public synchronized void clear()
+  {
+    boards.clear();
+    totalInts = 0;
+  }
+
+  public synchronized int size() {
+    return boards.size();
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  // the requested counts are part of the key, a crowded board may hold fewer
+  private static class Key
+  {
+    private final long seed;
+    private final int[] params;
+
+    Key(long seed, int width, int height, int walls, int prizes, int traps, int rocks, int barriers)
+    {
+      this.seed = seed;
+      params = new int[] { width, height, walls, prizes, traps, rocks, barriers };
+    }
+
+    public boolean equals(Object o)
+    {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key k = (Key)o;
+      return seed == k.seed && java.util.Arrays.equals(params, k.params);
+    }
+
+    public int hashCode()
+    {
+      return Long.hashCode(seed) * 31 + java.util.Arrays.hashCode(params);
+    }
+  }
+}
@@ -0,0 +1,161 @@
+import java.util.Arrays;
+import java.util.Random;
+
+// places traps, prizes, walls, rocks and barriers onto an OccupancyGrid
+// every object comes from a shuffled pool of free cells, so nothing overlaps
+// and each cell is looked at no more than once
+public class BoardGenerator
+{
+  private ShuffledPool cells = new ShuffledPool();
+  private ShuffledPool edges = new ShuffledPool();
+  private DistanceField distances = new DistanceField();
+  // candidate cells thrown away because a rock or barrier would not fit
+  private int skipped;
+  // rocks taken out so every prize can be reached
+  private int rocksRemoved;
+
+  // grid must be empty, fewer objects are placed if the board runs out of room
+  // the same seed, size and counts always give the same board
+  public BoardLayout generate(OccupancyGrid grid, long seed, int totalTraps, int totalPrizes,
+                              int totalWalls, int totalRocks, int totalBarriers)
+  {
+    // one stream for the whole layout
+    Random rand = new Random(seed);
+    int w = grid.getWidth();
+    int n = w * grid.getHeight();
+    // rocks and barriers may throw away a few neighbours for each one placed
+    cells.reset(n, totalTraps + totalPrizes + 3 * (totalRocks + totalBarriers));
+    edges.reset(2 * n, totalWalls);
+    skipped = 0;
+    rocksRemoved = 0;
+
+    int[] trapCells = new int[Math.min(totalTraps, n)];
+    for (int i = 0; i < trapCells.length; i++) {
+      trapCells[i] = cells.next(rand);
+      grid.set(trapCells[i] % w, trapCells[i] / w, OccupancyGrid.TRAP);
+    }
+
+    int[] prizeCells = new int[Math.min(totalPrizes, n - trapCells.length)];
+    for (int i = 0; i < prizeCells.length; i++) {
+      prizeCells[i] = cells.next(rand);
+      grid.set(prizeCells[i] % w, prizeCells[i] / w, OccupancyGrid.PRIZE);
+    }
+
+    int[] wallEdges = new int[Math.min(totalWalls, 2 * n)];
+    for (int i = 0; i < wallEdges.length; i++) {
+      int edge = edges.next(rand);
+      int cell = edge / 2;
+      wallEdges[i] = edge;
+      grid.set(cell % w, cell / w, edge % 2 == 0 ? OccupancyGrid.WALL_RIGHT : OccupancyGrid.WALL_DOWN);
+    }
+
+    int[] rockCells = placeSolid(grid, totalRocks, OccupancyGrid.ROCK, rand);
+    int[] barrierCells = placeSolid(grid, totalBarriers, OccupancyGrid.BARRIER, rand);
+    rockCells = makeSolvable(grid, rockCells, prizeCells);
+    // in cell order so the engine can find an object by binary search
+    Arrays.sort(trapCells);
+    Arrays.sort(prizeCells);
+    Arrays.sort(rockCells);
+    Arrays.sort(barrierCells);
+    return new BoardLayout(w, grid.getHeight(), seed, trapCells, prizeCells, wallEdges,
+        rockCells, barrierCells);
+  }
+
+  // rocks and barriers stay off the start cell and never touch each other;
+  // a cell that fails either rule can never become valid, so it is dropped
+  private int[] placeSolid(OccupancyGrid grid, int total, int flag, Random rand)
+  {
+    int w = grid.getWidth();
+    int solid = OccupancyGrid.ROCK | OccupancyGrid.BARRIER;
+    int[] placed = new int[total];
+    int count = 0;
+    while (count < total && cells.hasNext()) {
+      int cell = cells.next(rand);
+      int col = cell % w;
+      int row = cell / w;
+      if (cell == 0 || grid.nextTo(col, row, solid)) {
+        skipped++;
+        continue;
+      }
+      grid.set(col, row, flag);
+      placed[count++] = cell;
+    }
+    return count == total ? placed : java.util.Arrays.copyOf(placed, count);
+  }
+
+  // only rocks can wall off part of the board: steps ignore walls, and traps
+  // and barriers can be sprung from next door. While a prize is out of reach,
+  // take out the rock closest to it that separates a reachable cell from an
+  // unreachable one; each removal grows the reachable area, so this ends
+  private int[] makeSolvable(OccupancyGrid grid, int[] rockCells, int[] prizeCells)
+  {
+    int w = grid.getWidth();
+    distances.compute(grid, 0, 0);
+    int lost = firstUnreachable(prizeCells);
+    while (lost >= 0) {
+      int best = -1;
+      int bestDist = Integer.MAX_VALUE;
+      for (int i = 0; i < rockCells.length; i++) {
+        int col = rockCells[i] % w;
+        int row = rockCells[i] / w;
+        if (distances.reachable(rockCells[i]) || !bordersReach(grid, col, row)) {
+          continue;
+        }
+        int d = Math.abs(col - lost % w) + Math.abs(row - lost / w);
+        if (d < bestDist) {
+          best = i;
+          bestDist = d;
+        }
+      }
+      if (best < 0) {
+        break;
+      }
+      grid.clear(rockCells[best] % w, rockCells[best] / w, OccupancyGrid.ROCK);
+      rockCells[best] = rockCells[rockCells.length - 1];
+      rockCells = java.util.Arrays.copyOf(rockCells, rockCells.length - 1);
+      rocksRemoved++;
+      distances.compute(grid, 0, 0);
+      lost = firstUnreachable(prizeCells);
+    }
+    return rockCells;
+  }
+
+  private int firstUnreachable(int[] cells)
+  {
+    for (int cell : cells) {
+      if (!distances.reachable(cell)) {
+        return cell;
+      }
+    }
+    return -1;
+  }
+
+  // rock has a reachable neighbour and an unreachable one
+  private boolean bordersReach(OccupancyGrid grid, int col, int row)
+  {
+    boolean in = false;
+    boolean out = false;
+    int w = grid.getWidth();
+    int[][] dirs = { {1, 0}, {-1, 0}, {0, 1}, {0, -1} };
+    for (int[] d : dirs) {
+      int c = col + d[0];
+      int r = row + d[1];
+      if (grid.inBounds(c, r)) {
+        if (distances.reachable(r * w + c)) {
+          in = true;
+        } else {
+          out = true;
+        }
+      }
+    }
+    return in && out;
+  }
+
+  public int getRocksRemoved() {
+    return rocksRemoved;
+  }
+
+  public int getSkipped() {
+    return skipped;
+  }
+}
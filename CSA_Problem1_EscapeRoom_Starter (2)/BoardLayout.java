@@ -0,0 +1,85 @@
+import java.util.concurrent.CompletableFuture;
+
+// where everything was placed on a generated board, never changed after creation
+// cells are row * width + col, walls are cell * 2 (right edge) or cell * 2 + 1 (bottom edge)
+// trap, prize, rock and barrier cells are in increasing order
+// par, the Solver's answer for the board, is worked out once, in the background
+public class BoardLayout
+{
+  private final int width;
+  private final int height;
+  private final long seed;
+  private final int[] trapCells;
+  private final int[] prizeCells;
+  private final int[] wallEdges;
+  private final int[] rockCells;
+  private final int[] barrierCells;
+  private CompletableFuture<Solver.Solution> par;
+
+  public BoardLayout(int width, int height, long seed, int[] trapCells, int[] prizeCells,
+                     int[] wallEdges, int[] rockCells, int[] barrierCells)
+  {
+    this.width = width;
+    this.height = height;
+    this.seed = seed;
+    this.trapCells = trapCells;
+    this.prizeCells = prizeCells;
+    this.wallEdges = wallEdges;
+    this.rockCells = rockCells;
+    this.barrierCells = barrierCells;
+  }
+
+  // set the flags for every object on an empty grid of the same size
+  public void applyTo(OccupancyGrid grid)
+  {
+    mark(grid, trapCells, OccupancyGrid.TRAP);
+    mark(grid, prizeCells, OccupancyGrid.PRIZE);
+    mark(grid, rockCells, OccupancyGrid.ROCK);
+    mark(grid, barrierCells, OccupancyGrid.BARRIER);
+    for (int edge : wallEdges) {
+      int cell = edge / 2;
+      grid.set(cell % width, cell / width, edge % 2 == 0 ? OccupancyGrid.WALL_RIGHT : OccupancyGrid.WALL_DOWN);
+    }
+  }
+
+  private void mark(OccupancyGrid grid, int[] cells, int flag)
+  {
+    for (int cell : cells) {
+      grid.set(cell % width, cell / width, flag);
+    }
+  }
+
+  // the best way through this board, started on Solver's background pool the
+  // first time it is asked for and shared by every game on the board after.
+  // Holds null if the board could not be solved in Solver.PAR_STATES states
+  public synchronized CompletableFuture<Solver.Solution> par()
+  {
+    if (par == null) {
+      par = CompletableFuture.supplyAsync(this::solve, Solver.background()).exceptionally(e -> null);
+    }
+    return par;
+  }
+
+  private Solver.Solution solve()
+  {
+    Solver s = new Solver();
+    s.setMaxStates(Solver.PAR_STATES);
+    return s.solve(this);
+  }
+
+  // number of ints held, used to bound the board cache
+  public long size()
+  {
+    return (long)trapCells.length + prizeCells.length + wallEdges.length
+        + rockCells.length + barrierCells.length;
+  }
+
+  public int getWidth() { return width; }
+  public int getHeight() { return height; }
+  public long getSeed() { return seed; }
+  public int[] getTrapCells() { return trapCells; }
+  public int[] getPrizeCells() { return prizeCells; }
+  public int[] getWallEdges() { return wallEdges; }
+  public int[] getRockCells() { return rockCells; }
+  public int[] getBarrierCells() { return barrierCells; }
+}
@@ -0,0 +1,246 @@
+import java.util.Arrays;
+
+// one moment of a game as a renderer sees it. Snapshots never change once
+// made, so the game thread can swap in a new one while the event thread is
+// still drawing the last. Walls and rocks never change during a game, so
+// every snapshot of a board shares one copy of its cells and only records
+// where the player is and which prizes, traps and barriers are gone. A move
+// shares even those, which is what makes keeping old snapshots for undo cheap
+public final class BoardSnapshot
+{
+  // what the board looked like when it was made, shared and never written
+  private static final class Board
+  {
+    final int width;
+    final int height;
+    final byte[] flags;
+    // sorted, straight from the layout
+    final int[] prizeCells;
+    final int[] trapCells;
+    final int[] barrierCells;
+
+    Board(OccupancyGrid grid, BoardLayout layout)
+    {
+      width = grid.getWidth();
+      height = grid.getHeight();
+      flags = grid.toArray();
+      prizeCells = layout.getPrizeCells();
+      trapCells = layout.getTrapCells();
+      barrierCells = layout.getBarrierCells();
+    }
+  }
+
+  private final Board board;
+  // bit i set once prizeCells[i] is picked up / trapCells[i] or
+  // barrierCells[i] is sprung
+  private final long[] prizesTaken;
+  private final long[] trapsSprung;
+  private final long[] barriersSprung;
+  // pixel position of the player's top left corner
+  private final int playerX;
+  private final int playerY;
+
+  private BoardSnapshot(Board board, long[] prizesTaken, long[] trapsSprung, long[] barriersSprung,
+                        int playerX, int playerY)
+  {
+    this.board = board;
+    this.prizesTaken = prizesTaken;
+    this.trapsSprung = trapsSprung;
+    this.barriersSprung = barriersSprung;
+    this.playerX = playerX;
+    this.playerY = playerY;
+  }
+
+  // a freshly made board, grid must hold everything the layout placed
+  public static BoardSnapshot of(OccupancyGrid grid, BoardLayout layout, int playerX, int playerY)
+  {
+    Board b = new Board(grid, layout);
+    return new BoardSnapshot(b, bits(b.prizeCells), bits(b.trapCells), bits(b.barrierCells),
+        playerX, playerY);
+  }
+
+  public BoardSnapshot withPlayer(int x, int y)
+  {
+    return new BoardSnapshot(board, prizesTaken, trapsSprung, barriersSprung, x, y);
+  }
+
+  public BoardSnapshot withPrizeTaken(int cell)
+  {
+    return new BoardSnapshot(board, set(prizesTaken, board.prizeCells, cell), trapsSprung,
+        barriersSprung, playerX, playerY);
+  }
+
+  public BoardSnapshot withTrapSprung(int cell)
+  {
+    return new BoardSnapshot(board, prizesTaken, set(trapsSprung, board.trapCells, cell),
+        barriersSprung, playerX, playerY);
+  }
+
+  public BoardSnapshot withBarrierSprung(int cell)
+  {
+    return new BoardSnapshot(board, prizesTaken, trapsSprung,
+        set(barriersSprung, board.barrierCells, cell), playerX, playerY);
+  }
+
+  // the same board with every prize, trap and barrier back
+  public BoardSnapshot reset(int x, int y)
+  {
+    return new BoardSnapshot(board, bits(board.prizeCells), bits(board.trapCells),
+        bits(board.barrierCells), x, y);
+  }
+
+  // the same board with the given taken/sprung bits, as SaveStore reads them
+  // back; bits past the end of a kind's cells are refused
+  BoardSnapshot withBits(long[] prizes, long[] traps, long[] barriers, int x, int y)
+  {
+    check(prizes, board.prizeCells);
+    check(traps, board.trapCells);
+    check(barriers, board.barrierCells);
+    return new BoardSnapshot(board, prizes, traps, barriers, x, y);
+  }
+
+  // the bits themselves, never to be changed
+  long[] prizeBits() {
+    return prizesTaken;
+  }
+
+  long[] trapBits() {
+    return trapsSprung;
+  }
+
+  long[] barrierBits() {
+    return barriersSprung;
+  }
+
+  // change grid, which shows from (a snapshot of the same board), to show
+  // this one instead; only prizes, traps and barriers that differ are
+  // touched, and sets of them the two snapshots share are skipped outright
+  public void updateGrid(OccupancyGrid grid, BoardSnapshot from)
+  {
+    sync(grid, from.prizesTaken, prizesTaken, board.prizeCells, OccupancyGrid.PRIZE);
+    sync(grid, from.trapsSprung, trapsSprung, board.trapCells, OccupancyGrid.TRAP);
+    sync(grid, from.barriersSprung, barriersSprung, board.barrierCells, OccupancyGrid.BARRIER);
+  }
+
+  // true if both show the same board, whatever has been picked up since
+  public boolean sameBoard(BoardSnapshot other)
+  {
+    return other != null && other.board == board;
+  }
+
+  public int getWidth() {
+    return board.width;
+  }
+
+  public int getHeight() {
+    return board.height;
+  }
+
+  public int getPlayerX() {
+    return playerX;
+  }
+
+  public int getPlayerY() {
+    return playerY;
+  }
+
+  public int getPrizesTaken() {
+    return count(prizesTaken);
+  }
+
+  public int getPrizesLeft() {
+    return board.prizeCells.length - count(prizesTaken);
+  }
+
+  public int getTrapsLeft() {
+    return board.trapCells.length - count(trapsSprung);
+  }
+
+  public int getBarriersLeft() {
+    return board.barrierCells.length - count(barriersSprung);
+  }
+
+  // true if any of the flags are on the cell, cells off the board are empty
+  public boolean has(int col, int row, int flags)
+  {
+    if (col < 0 || col >= board.width || row < 0 || row >= board.height) {
+      return false;
+    }
+    int cell = row * board.width + col;
+    int f = board.flags[cell] & flags;
+    if ((f & OccupancyGrid.PRIZE) != 0 && gone(prizesTaken, board.prizeCells, cell)) {
+      f &= ~OccupancyGrid.PRIZE;
+    }
+    if ((f & OccupancyGrid.TRAP) != 0 && gone(trapsSprung, board.trapCells, cell)) {
+      f &= ~OccupancyGrid.TRAP;
+    }
+    if ((f & OccupancyGrid.BARRIER) != 0 && gone(barriersSprung, board.barrierCells, cell)) {
+      f &= ~OccupancyGrid.BARRIER;
+    }
+    return f != 0;
+  }
+
+  private static long[] bits(int[] cells)
+  {
+    return new long[(cells.length + 63) / 64];
+  }
+
+  // refuse bits that could not belong to cells, as withBits would
+  static void check(long[] bits, int[] cells)
+  {
+    if (bits.length != (cells.length + 63) / 64) {
+      throw new IllegalArgumentException("expected bits for " + cells.length + " objects");
+    }
+    int spare = bits.length * 64 - cells.length;
+    if (spare > 0 && bits[bits.length - 1] >>> (64 - spare) != 0) {
+      throw new IllegalArgumentException("bit set for an object that is not on the board");
+    }
+  }
+
+  private static int count(long[] bits)
+  {
+    int n = 0;
+    for (long word : bits) {
+      n += Long.bitCount(word);
+    }
+    return n;
+  }
+
+  private static boolean gone(long[] bits, int[] cells, int cell)
+  {
+    int i = Arrays.binarySearch(cells, cell);
+    return i >= 0 && (bits[i >> 6] & (1L << i)) != 0;
+  }
+
+  // copy of bits with the cell's bit set
+  private static long[] set(long[] bits, int[] cells, int cell)
+  {
+    int i = Arrays.binarySearch(cells, cell);
+    if (i < 0) {
+      return bits;
+    }
+    long[] copy = bits.clone();
+    copy[i >> 6] |= 1L << i;
+    return copy;
+  }
+
+  // put back objects whose bit is set in from but not in to, take away
+  // the ones set in to but not in from
+  private static void sync(OccupancyGrid grid, long[] from, long[] to, int[] cells, int flag)
+  {
+    if (from == to) {
+      return;
+    }
+    for (int w = 0; w < to.length; w++) {
+      for (long diff = from[w] ^ to[w]; diff != 0; diff &= diff - 1) {
+        int bit = Long.numberOfTrailingZeros(diff);
+        int cell = cells[w * 64 + bit];
+        if ((to[w] & (1L << bit)) != 0) {
+          grid.setFlags(cell, grid.flags(cell) & ~flag);
+        } else {
+          grid.setFlags(cell, grid.flags(cell) | flag);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,83 @@
+// every command the player can type, with its aliases and how far it moves
+// parse is a string switch (hash then one equals), so it takes the same time
+// for any input and allocates nothing
+public enum Command
+{
+  RIGHT(Kind.MOVE, 1, 0, "right", "r"),
+  LEFT(Kind.MOVE, -1, 0, "left", "l"),
+  UP(Kind.MOVE, 0, -1, "up", "u"),
+  DOWN(Kind.MOVE, 0, 1, "down", "d"),
+  JUMP_RIGHT(Kind.JUMP, 2, 0, "jumpright", "jr"),
+  JUMP_LEFT(Kind.JUMP, -2, 0, "jumpleft", "jl"),
+  JUMP_UP(Kind.JUMP, 0, -2, "jumpup", "ju"),
+  JUMP_DOWN(Kind.JUMP, 0, 2, "jumpdown", "jd"),
+  PICKUP(Kind.ACTION, 0, 0, "pickup", "p"),
+  SPRING(Kind.ACTION, 0, 0, "spring", "s"),
+  HELP(Kind.GAME, 0, 0, "help", "?"),
+  REPLAY(Kind.GAME, 0, 0, "replay", "replay"),
+  NEW_BOARD(Kind.GAME, 0, 0, "newboard", "new"),
+  UNDO(Kind.GAME, 0, 0, "undo", "z"),
+  REDO(Kind.GAME, 0, 0, "redo", "y"),
+  QUIT(Kind.GAME, 0, 0, "quit", "q");
+
+  // what a command does, so nothing depends on the order of the constants:
+  // a step, a jump, something done where the player stands, or something
+  // about the game rather than the board
+  private enum Kind { MOVE, JUMP, ACTION, GAME }
+
+  private final Kind kind;
+  // cells moved, jumps cover two
+  final int dx;
+  final int dy;
+  final String word;
+  final String alias;
+
+  Command(Kind kind, int dx, int dy, String word, String alias)
+  {
+    this.kind = kind;
+    this.dx = dx;
+    this.dy = dy;
+    this.word = word;
+    this.alias = alias;
+  }
+
+  public boolean isMove()
+  {
+    return kind == Kind.MOVE;
+  }
+
+  public boolean isJump()
+  {
+    return kind == Kind.JUMP;
+  }
+
+  // plays on the board, a move, jump, pickup or spring, so undo can take it back
+  public boolean isPlay()
+  {
+    return kind != Kind.GAME;
+  }
+
+  // command for already trimmed, lower case input, or null if it is not one
+  public static Command parse(String s)
+  {
+    switch (s) {
+      case "right": case "r": return RIGHT;
+      case "left": case "l": return LEFT;
+      case "up": case "u": return UP;
+      case "down": case "d": return DOWN;
+      case "jumpright": case "jr": return JUMP_RIGHT;
+      case "jumpleft": case "jl": return JUMP_LEFT;
+      case "jumpup": case "ju": return JUMP_UP;
+      case "jumpdown": case "jd": return JUMP_DOWN;
+      case "pickup": case "p": return PICKUP;
+      case "spring": case "s": return SPRING;
+      case "help": case "?": return HELP;
+      case "replay": return REPLAY;
+      case "newboard": case "new": return NEW_BOARD;
+      case "undo": case "z": return UNDO;
+      case "redo": case "y": return REDO;
+      case "quit": case "q": return QUIT;
+      default: return null;
+    }
+  }
+}
@@ -0,0 +1,410 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// plays very many boards of one configuration headlessly to show how hard
+// it is: how often the solver finds a way out, the par steps it needs, and
+// how a random player and a greedy one fare (won, caught by a trap, or out
+// of turns). Games are split into chunks run on a ForkJoinPool; each chunk
+// has its own seed and random stream and each thread its own engine and
+// solver, so threads share nothing until the chunk totals are added up, and
+// the same --seed gives the same numbers on any number of threads
+//
+// usage: java DifficultySimulator [--size WxH] [--games N] [--threads N] [--seed N]
+//          [--walls N] [--prizes N] [--traps N] [--rocks N] [--barriers N]
+//          [--turns N] [--no-par] [--scaling]
+// --scaling runs the same games on 1, 2, 4... threads up to every core
+public class DifficultySimulator
+{
+  // games one task plays, enough that handing out tasks costs nothing
+  private static final int CHUNK = 1024;
+  // what the random player picks from
+  private static final Command[] PLAY = {
+    Command.RIGHT, Command.LEFT, Command.UP, Command.DOWN,
+    Command.JUMP_RIGHT, Command.JUMP_LEFT, Command.JUMP_UP, Command.JUMP_DOWN,
+    Command.PICKUP, Command.SPRING
+  };
+  private static final Command[] STEPS = {
+    Command.RIGHT, Command.LEFT, Command.UP, Command.DOWN,
+    Command.JUMP_RIGHT, Command.JUMP_LEFT, Command.JUMP_UP, Command.JUMP_DOWN
+  };
+  // how often the greedy player takes a random step to get out of a dead end
+  private static final double GREEDY_WANDER = 0.1;
+
+  private final int gridW;
+  private final int gridH;
+  private int walls = 12;
+  private int prizes = 3;
+  private int traps = 4;
+  private int rocks = 3;
+  private int barriers = 3;
+  // commands an agent gets before it counts as stuck
+  private int turns = 200;
+  private boolean par = true;
+  // each thread's engine and solver, made the first time it plays a chunk
+  private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+  public DifficultySimulator(int gridW, int gridH)
+  {
+    this.gridW = gridW;
+    this.gridH = gridH;
+  }
+
+  public void setCounts(int walls, int prizes, int traps, int rocks, int barriers)
+  {
+    this.walls = walls;
+    this.prizes = prizes;
+    this.traps = traps;
+    this.rocks = rocks;
+    this.barriers = barriers;
+  }
+
+  public void setTurns(int t)
+  {
+    turns = t;
+  }
+
+  // solving every board is most of the work on big grids
+  public void setPar(boolean p)
+  {
+    par = p;
+  }
+
+  // how games went, one agent's share
+  public static final class Agent
+  {
+    long won;
+    long caught;
+    long stuck;
+    long score;
+    final Counts stepsToWin = new Counts();
+
+    void add(Agent o)
+    {
+      won += o.won;
+      caught += o.caught;
+      stuck += o.stuck;
+      score += o.score;
+      stepsToWin.add(o.stepsToWin);
+    }
+  }
+
+  // totals for a number of games, added up chunk by chunk
+  public static final class Stats
+  {
+    long games;
+    long solvable;
+    long parScore;
+    final Counts parSteps = new Counts();
+    final Agent random = new Agent();
+    final Agent greedy = new Agent();
+
+    Stats add(Stats o)
+    {
+      games += o.games;
+      solvable += o.solvable;
+      parScore += o.parScore;
+      parSteps.add(o.parSteps);
+      random.add(o.random);
+      greedy.add(o.greedy);
+      return this;
+    }
+  }
+
+  // how often each small number came up
+  static final class Counts
+  {
+    private long[] counts = new long[64];
+    private long n;
+    private long sum;
+
+    void add(int v)
+    {
+      if (v >= counts.length) {
+        counts = java.util.Arrays.copyOf(counts, Math.max(v + 1, counts.length * 2));
+      }
+      counts[v]++;
+      n++;
+      sum += v;
+    }
+
+    void add(Counts o)
+    {
+      if (o.counts.length > counts.length) {
+        counts = java.util.Arrays.copyOf(counts, o.counts.length);
+      }
+      for (int i = 0; i < o.counts.length; i++) {
+        counts[i] += o.counts[i];
+      }
+      n += o.n;
+      sum += o.sum;
+    }
+
+    double mean()
+    {
+      return n == 0 ? 0 : (double)sum / n;
+    }
+
+    // smallest value at least p percent are at or under, -1 if empty
+    int percentile(double p)
+    {
+      long rank = Math.max(1, (long)Math.ceil(n * p / 100));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+  // one thread's tools, reused for every game it plays
+  private final class Worker
+  {
+    final DungeonEngine engine = new DungeonEngine(gridW, gridH);
+    final Solver solver = new Solver();
+    final int[] order = new int[STEPS.length];
+
+    Worker()
+    {
+      engine.setOutput(null);
+      // a million seeds are never asked for twice
+      engine.setBoardCache(null);
+      engine.setWalls(walls);
+      engine.setPrizes(prizes);
+      engine.setTraps(traps);
+      engine.setRocks(rocks);
+      engine.setBarriers(barriers);
+    }
+  }
+
+  // games [0, games) of the run seeded with seed, on threads threads
+  public Stats run(long seed, int games, int threads)
+  {
+    int chunks = (games + CHUNK - 1) / CHUNK;
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      return pool.submit(() -> IntStream.range(0, chunks).parallel()
+          .mapToObj(c -> playChunk(mix(seed + c), Math.min(CHUNK, games - c * CHUNK)))
+          .reduce(new Stats(), (a, b) -> new Stats().add(a).add(b))).join();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private Stats playChunk(long chunkSeed, int games)
+  {
+    Worker w = workers.get();
+    SplittableRandom rand = new SplittableRandom(chunkSeed);
+    Stats stats = new Stats();
+    for (int i = 0; i < games; i++) {
+      playBoard(w, rand.nextLong(), rand, stats);
+    }
+    return stats;
+  }
+
+  private void playBoard(Worker w, long boardSeed, SplittableRandom rand, Stats stats)
+  {
+    DungeonEngine engine = w.engine;
+    engine.createBoard(boardSeed);
+    stats.games++;
+    if (par) {
+      Solver.Solution s = w.solver.solve(engine.getLayout());
+      if (s != null) {
+        stats.solvable++;
+        stats.parScore += s.score;
+        stats.parSteps.add(s.steps);
+      }
+    }
+    play(engine, false, w, rand, stats.random);
+    engine.replay();
+    play(engine, true, w, rand, stats.greedy);
+    engine.replay();
+  }
+
+  // one game from the start of the board, by the rules GameSession plays by
+  private void play(DungeonEngine engine, boolean greedy, Worker w, SplittableRandom rand, Agent agent)
+  {
+    GameSession session = new GameSession(engine, "Gryffindor", null);
+    for (int t = 0; t < turns && session.isPlaying() && !engine.isGameOver(); t++) {
+      session.process(greedy ? greedyMove(engine, w, rand) : PLAY[rand.nextInt(PLAY.length)]);
+    }
+    agent.score += session.getScore();
+    GameSession.Outcome outcome = session.getOutcome();
+    if (outcome == GameSession.Outcome.WON) {
+      agent.won++;
+      agent.stepsToWin.add(engine.getSteps());
+    } else if (outcome == GameSession.Outcome.CAUGHT) {
+      agent.caught++;
+    } else {
+      agent.stuck++;
+    }
+  }
+
+  // picks up what it stands on, springs barriers next to it, and otherwise
+  // takes the step or jump that lands closest to a prize it can see. Rocks,
+  // barriers and walls are in plain sight; traps are hidden, so it can jump
+  // into one
+  private Command greedyMove(DungeonEngine engine, Worker w, SplittableRandom rand)
+  {
+    OccupancyGrid grid = engine.getGrid();
+    int col = engine.getPlayerCol();
+    int row = engine.getPlayerRow();
+    if (grid.has(col, row, OccupancyGrid.PRIZE)) {
+      return Command.PICKUP;
+    }
+    if (grid.nextTo(col, row, OccupancyGrid.BARRIER)) {
+      return Command.SPRING;
+    }
+    int[] prizeCells = engine.getLayout().getPrizeCells();
+    boolean wander = rand.nextDouble() < GREEDY_WANDER;
+    Command best = null;
+    int bestDist = Integer.MAX_VALUE;
+    // a random order, so ties do not always go the same way
+    int[] order = w.order;
+    for (int i = 0; i < order.length; i++) {
+      int j = rand.nextInt(i + 1);
+      order[i] = order[j];
+      order[j] = i;
+    }
+    for (int i : order) {
+      Command c = STEPS[i];
+      int toCol = col + c.dx;
+      int toRow = row + c.dy;
+      if (!grid.inBounds(toCol, toRow) || !canTry(grid, c, col, row, toCol, toRow)) {
+        continue;
+      }
+      if (wander) {
+        return c;
+      }
+      int d = nearest(grid, prizeCells, toCol, toRow) * 2 + (c.isJump() ? 1 : 0);
+      if (d < bestDist) {
+        best = c;
+        bestDist = d;
+      }
+    }
+    return best == null ? Command.SPRING : best;
+  }
+
+  // what the player can see would stop it
+  private static boolean canTry(OccupancyGrid grid, Command c, int col, int row, int toCol, int toRow)
+  {
+    if (c.isMove()) {
+      return !grid.has(toCol, toRow, OccupancyGrid.ROCK | OccupancyGrid.BARRIER);
+    }
+    return !grid.jumpBlocked(col + c.dx / 2, row + c.dy / 2) && !grid.jumpBlocked(toCol, toRow);
+  }
+
+  // cells to the closest prize still on the board, ignoring what is in the way
+  private static int nearest(OccupancyGrid grid, int[] prizeCells, int col, int row)
+  {
+    int w = grid.getWidth();
+    int best = Integer.MAX_VALUE / 4;
+    for (int cell : prizeCells) {
+      if (grid.has(cell % w, cell / w, OccupancyGrid.PRIZE)) {
+        best = Math.min(best, Math.abs(cell % w - col) + Math.abs(cell / w - row));
+      }
+    }
+    return best;
+  }
+
+  // splitmix64, so chunk seeds next to each other give unrelated streams
+  private static long mix(long s)
+  {
+    long z = s + 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  public static void main(String[] args)
+  {
+    int gridW = DungeonEngine.GRID_W;
+    int gridH = DungeonEngine.GRID_H;
+    int games = 200_000;
+    int threads = Runtime.getRuntime().availableProcessors();
+    long seed = 1;
+    int[] counts = { 12, 3, 4, 3, 3 };
+    String[] countFlags = { "--walls", "--prizes", "--traps", "--rocks", "--barriers" };
+    int turns = 200;
+    boolean par = true;
+    boolean scaling = false;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--size") && i + 1 < args.length) {
+        String[] dims = args[++i].toLowerCase().split("x");
+        gridW = Integer.parseInt(dims[0]);
+        gridH = Integer.parseInt(dims[1]);
+      } else if (args[i].equals("--games") && i + 1 < args.length) {
+        games = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("--threads") && i + 1 < args.length) {
+        threads = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("--seed") && i + 1 < args.length) {
+        seed = Long.parseLong(args[++i]);
+      } else if (args[i].equals("--turns") && i + 1 < args.length) {
+        turns = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("--no-par")) {
+        par = false;
+      } else if (args[i].equals("--scaling")) {
+        scaling = true;
+      } else {
+        for (int k = 0; k < countFlags.length; k++) {
+          if (args[i].equals(countFlags[k]) && i + 1 < args.length) {
+            counts[k] = Integer.parseInt(args[++i]);
+          }
+        }
+      }
+    }
+
+    DifficultySimulator sim = new DifficultySimulator(gridW, gridH);
+    sim.setCounts(counts[0], counts[1], counts[2], counts[3], counts[4]);
+    sim.setTurns(turns);
+    sim.setPar(par);
+    System.out.printf("%dx%d, %d walls, %d prizes, %d traps, %d rocks, %d barriers, %d turns a game%n",
+        gridW, gridH, counts[0], counts[1], counts[2], counts[3], counts[4], turns);
+
+    if (scaling) {
+      // a short run first so the JIT has compiled the game before timing
+      sim.run(seed, Math.min(games, 20_000), threads);
+      System.out.println("threads    games/s    speedup");
+      double one = 0;
+      for (int t = 1; t <= threads; t = t < threads && t * 2 > threads ? threads : t * 2) {
+        long start = System.nanoTime();
+        sim.run(seed, games, t);
+        double rate = games / ((System.nanoTime() - start) / 1e9);
+        if (t == 1) {
+          one = rate;
+        }
+        System.out.printf("%-10d %-10.0f %.2f%n", t, rate, rate / one);
+      }
+      return;
+    }
+
+    long start = System.nanoTime();
+    Stats s = sim.run(seed, games, threads);
+    double secs = (System.nanoTime() - start) / 1e9;
+    System.out.printf("%d games in %.1f s on %d threads: %.0f games/s%n", s.games, secs, threads, s.games / secs);
+    if (par) {
+      System.out.printf("solvable %.2f%%, par steps mean %.2f p50 %d p90 %d p99 %d max %d, par score mean %.1f%n",
+          100.0 * s.solvable / s.games, s.parSteps.mean(), s.parSteps.percentile(50),
+          s.parSteps.percentile(90), s.parSteps.percentile(99), s.parSteps.percentile(100),
+          s.solvable == 0 ? 0 : (double)s.parScore / s.solvable);
+    }
+    System.out.println("agent    won      caught   stuck    score    steps to win p50/p90");
+    print("random", s.random, s.games);
+    print("greedy", s.greedy, s.games);
+  }
+
+  private static void print(String name, Agent a, long games)
+  {
+    System.out.printf("%-8s %-8s %-8s %-8s %-8.1f %d/%d%n", name, percent(a.won, games), percent(a.caught, games),
+        percent(a.stuck, games), (double)a.score / games, a.stepsToWin.percentile(50),
+        a.stepsToWin.percentile(90));
+  }
+
+  private static String percent(long n, long of)
+  {
+    return String.format("%.2f%%", 100.0 * n / of);
+  }
+}
@@ -0,0 +1,81 @@
+// breadth first search from the start cell giving the fewest steps to every cell
+// steps are moves and jumps; springing is free, so a barrier or trap next to
+// the player is treated as already sprung
+public class DistanceField
+{
+  static final int UNREACHABLE = -1;
+  // right, left, down, up
+  private static final int[] DX = { 1, -1, 0, 0 };
+  private static final int[] DY = { 0, 0, 1, -1 };
+
+  private int width;
+  private int height;
+  private int[] dist = new int[0];
+  private int[] queue = new int[0];
+
+  public void compute(OccupancyGrid grid, int startCol, int startRow)
+  {
+    width = grid.getWidth();
+    height = grid.getHeight();
+    int n = width * height;
+    if (dist.length < n) {
+      dist = new int[n];
+      queue = new int[n];
+    }
+    java.util.Arrays.fill(dist, 0, n, UNREACHABLE);
+
+    int head = 0;
+    int tail = 0;
+    dist[startRow * width + startCol] = 0;
+    queue[tail++] = startRow * width + startCol;
+    while (head < tail) {
+      int cell = queue[head++];
+      int col = cell % width;
+      int row = cell / width;
+      int next = dist[cell] + 1;
+      for (int d = 0; d < 4; d++) {
+        int dx = DX[d];
+        int dy = DY[d];
+
+        // a step only needs the cell to be free of rocks, a barrier there
+        // would be sprung first
+        int c = col + dx;
+        int r = row + dy;
+        if (c < 0 || c >= width || r < 0 || r >= height) {
+          continue;
+        }
+        int mid = cell + dy * width + dx;
+        if ((grid.flags(mid) & OccupancyGrid.ROCK) == 0 && dist[mid] == UNREACHABLE) {
+          dist[mid] = next;
+          queue[tail++] = mid;
+        }
+
+        // a jump clears rocks in the middle (barriers there are sprung from
+        // here) but needs no wall into either cell and nothing live to land on
+        int c2 = c + dx;
+        int r2 = r + dy;
+        if (c2 < 0 || c2 >= width || r2 < 0 || r2 >= height) {
+          continue;
+        }
+        int land = mid + dy * width + dx;
+        if (dist[land] == UNREACHABLE
+            && (grid.flags(land) & (OccupancyGrid.BARRIER | OccupancyGrid.TRAP)) == 0
+            && !grid.wallInto(c, r) && !grid.wallInto(c2, r2)) {
+          dist[land] = next;
+          queue[tail++] = land;
+        }
+      }
+    }
+  }
+
+  // fewest steps from the start, or UNREACHABLE
+  public int get(int col, int row)
+  {
+    return dist[row * width + col];
+  }
+
+  public boolean reachable(int cell)
+  {
+    return dist[cell] != UNREACHABLE;
+  }
+}
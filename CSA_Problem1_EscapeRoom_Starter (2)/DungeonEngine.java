@@ -0,0 +1,745 @@
+import java.io.PrintStream;
+
+import java.util.Random;
+
+// game rules and board state, no window needed
+public class DungeonEngine
+{
+  static final int SPACE_SIZE = 60;
+  static final int GRID_W = 8;
+  static final int GRID_H = 5;
+  static final int MAX_GRID = 2000;
+  static final int PLAYER_SIZE = 40;
+  // top left corner of the first cell, leaves a margin around the grid
+  static final int START_LOC_X = 15;
+  static final int START_LOC_Y = 30;
+
+  // notified whenever something visible on the board changes
+  public interface Listener
+  {
+    // anything may have changed: a new board or a replay
+    void boardChanged();
+
+    // only what is drawn on this cell changed
+    void cellChanged(int col, int row);
+  }
+
+  // player position coords
+  int x = START_LOC_X;
+  int y = START_LOC_Y;
+
+  // board size in cells
+  private int gridW;
+  private int gridH;
+  // count moves player makes
+  private int playerSteps;
+  // how many of each object a new board asks for
+  private int totalWalls;
+  private int totalPrizes;
+  private int totalTraps;
+  private int totalRocks;
+  private int totalBarriers;
+  // what is on each cell, what collisions are checked against; which
+  // prizes, traps and barriers are gone is also kept in the snapshot
+  private OccupancyGrid grid;
+  private BoardGenerator generator = new BoardGenerator();
+  private BoardCache cache = BoardCache.shared();
+  // seed of the current board, the same seed always gives the same board
+  private long seed;
+  // where everything started on the current board
+  private BoardLayout layout;
+  // what renderers see: next is built up while a command runs, then
+  // published to snapshot in one write when it is done
+  private BoardSnapshot next;
+  private volatile BoardSnapshot snapshot;
+
+  // score values for game events
+  private int prizeVal = 10;
+  private int trapVal = 5;
+  private int endVal = 10;
+  private int offGridVal = 5;
+  private int hitWallVal = 5;
+
+  // game state tracking
+  private int coinsCollected = 0;
+  private boolean gameOver = false;
+  // renderer watching the board, may be null when headless; set from the
+  // event thread while the board is being made
+  private volatile Listener listener;
+  // where game messages go, null to play silently
+  private GameLog log = GameLog.console();
+  // counts walls hit, steps off the grid and traps, null for none
+  private GameMetrics metrics;
+
+  public DungeonEngine()
+  {
+    this(GRID_W, GRID_H);
+  }
+
+  public DungeonEngine(int gridW, int gridH)
+  {
+    if (gridW < 1 || gridH < 1 || gridW > MAX_GRID || gridH > MAX_GRID) {
+      throw new IllegalArgumentException("grid must be between 1x1 and " + MAX_GRID + "x" + MAX_GRID);
+    }
+    this.gridW = gridW;
+    this.gridH = gridH;
+    grid = new OccupancyGrid(gridW, gridH);
+
+    // set number of obstacles
+    totalWalls = 12;
+    totalPrizes = 3;
+    totalTraps = 4;
+    totalRocks = 3;
+    totalBarriers = 3;
+  }
+
+  public void setListener(Listener l)
+  {
+    listener = l;
+  }
+
+  // messages straight to o, null for none
+  public void setOutput(PrintStream o)
+  {
+    log = o == null ? null : new GameLog(o, GameLog.Level.INFO);
+  }
+
+  public void setLog(GameLog l)
+  {
+    log = l;
+  }
+
+  public void setMetrics(GameMetrics m)
+  {
+    metrics = m;
+  }
+
+  private void say(String message)
+  {
+    if (log != null) {
+      log.player(message);
+    }
+  }
+
+  private void say(String message, long n, String more, long m)
+  {
+    if (log != null) {
+      log.player(message, n, more, m);
+    }
+  }
+
+  private boolean debugging()
+  {
+    return log != null && log.isDebug();
+  }
+
+  // start working out par for a new board while the game is played, so it is
+  // ready when the game ends; only if there is anyone to show it to and the
+  // board is small enough that this costs next to nothing. Par for a bigger
+  // one is worked out when the game ends, if at all
+  private void solvePar()
+  {
+    if (log != null && log.isEnabled(GameLog.Level.PLAYER) && Solver.small(layout)) {
+      layout.par();
+    }
+  }
+
+  private void changed()
+  {
+    Listener l = listener;
+    if (l != null) {
+      l.boardChanged();
+    }
+  }
+
+  private void changed(int col, int row)
+  {
+    Listener l = listener;
+    if (l != null) {
+      l.cellChanged(col, row);
+    }
+  }
+
+  // create all board obstacles and items on a new random board
+  public void createBoard()
+  {
+    createBoard(new Random().nextLong());
+  }
+
+  // a different board of the same size, starting over from the first cell;
+  // its seed follows from this board's, so a game is the same every time
+  public void newBoard()
+  {
+    x = START_LOC_X;
+    y = START_LOC_Y;
+    playerSteps = 0;
+    createBoard(nextSeed(seed));
+  }
+
+  // create the board for a seed, reusing it if it was generated recently
+  // the grid, generator and bitsets are reused, so only the layout and the
+  // snapshot the renderer keeps are new
+  public void createBoard(long seed)
+  {
+    createBoard(seed, null);
+  }
+
+  // made, if not null, is what layoutFor gave for seed and this engine's
+  // counts, so it is not looked up or generated again
+  void createBoard(long seed, BoardLayout made)
+  {
+    GameEvents.look();
+    GameEvents.CreateBoardEvent event = GameEvents.recording() ? new GameEvents.CreateBoardEvent() : null;
+    if (event != null) {
+      event.begin();
+    }
+    this.seed = seed;
+    grid.clearAll();
+    layout = made;
+    if (layout == null && cache != null) {
+      layout = cache.get(seed, gridW, gridH, totalWalls, totalPrizes, totalTraps, totalRocks, totalBarriers);
+    }
+    boolean cached = layout != null;
+    if (cached) {
+      layout.applyTo(grid);
+    } else {
+      layout = generator.generate(grid, seed, totalTraps, totalPrizes, totalWalls, totalRocks, totalBarriers);
+      if (cache != null) {
+        cache.put(layout, totalWalls, totalPrizes, totalTraps, totalRocks, totalBarriers);
+      }
+    }
+
+    coinsCollected = 0;
+    gameOver = false;
+    next = BoardSnapshot.of(grid, layout, x, y);
+    publish();
+    solvePar();
+    if (debugging()) {
+      log.debug("Board " + gridW + "x" + gridH + " seed " + seed + (cached ? " from the cache"
+          : " generated, " + generator.getSkipped() + " cells skipped, " + generator.getRocksRemoved()
+          + " rocks removed"));
+    }
+    if (event != null && event.isEnabled()) {
+      event.end();
+      event.seed = seed;
+      event.width = gridW;
+      event.height = gridH;
+      event.cached = cached;
+      event.skipped = cached ? 0 : generator.getSkipped();
+      event.rocksRemoved = cached ? 0 : generator.getRocksRemoved();
+      event.objects = layout.getTrapCells().length + layout.getPrizeCells().length + layout.getWallEdges().length
+          + layout.getRockCells().length + layout.getBarrierCells().length;
+      event.commit();
+    }
+    changed();
+  }
+
+  // the board createBoard would make for seed with these counts, from the
+  // cache or generated on a grid of its own; this engine is left as it is
+  BoardLayout layoutFor(long seed, int walls, int prizes, int traps, int rocks, int barriers)
+  {
+    BoardLayout l = cache == null ? null : cache.get(seed, gridW, gridH, walls, prizes, traps, rocks, barriers);
+    if (l == null) {
+      l = new BoardGenerator().generate(new OccupancyGrid(gridW, gridH), seed, traps, prizes, walls, rocks, barriers);
+      if (cache != null) {
+        cache.put(l, walls, prizes, traps, rocks, barriers);
+      }
+    }
+    return l;
+  }
+
+  private void publish()
+  {
+    snapshot = next;
+  }
+
+  // move player by increment, check bounds and collisions
+  public int movePlayer(int incrx, int incry)
+  {
+    GameEvents.MoveEvent event = GameEvents.recording() ? new GameEvents.MoveEvent() : null;
+    if (event == null || !event.isEnabled()) {
+      return step(incrx, incry);
+    }
+    event.begin();
+    int fromX = x;
+    int fromY = y;
+    int result = step(incrx, incry);
+    moved(event, false, fromX, fromY, incrx, incry, result);
+    return result;
+  }
+
+  private int step(int incrx, int incry)
+  {
+      // calculate new position
+      int newX = x + incrx;
+      int newY = y + incry;
+
+      // increment step counter
+      playerSteps++;
+
+      // check if move goes off grid
+      if (!grid.inBounds(colOf(newX), rowOf(newY)))
+      {
+        say("OFF THE GRID!");
+        if (metrics != null) {
+          metrics.offGrid();
+        }
+        return -offGridVal;
+      }
+
+      // check if blocked by obstacle
+      if (checkCollision(newX, newY, incrx, incry)) {
+        if (metrics != null) {
+          metrics.hitWall();
+        }
+        return -hitWallVal;
+      }
+
+      // move succeeded
+      int fromCol = colOf(x);
+      int fromRow = rowOf(y);
+      x += incrx;
+      y += incry;
+      next = next.withPlayer(x, y);
+      publish();
+
+      changed(fromCol, fromRow);
+      changed(colOf(x), rowOf(y));
+      return 0;
+  }
+
+  // try to disarm trap at offset from player
+  public int springTrap(int newx, int newy)
+  {
+    int score = spring(newx, newy);
+    publish();
+    if (score > 0) {
+      changed(colOf(x + newx), rowOf(y + newy));
+    }
+    return score;
+  }
+
+  private int spring(int newx, int newy)
+  {
+    // calculate adjacent cell
+    int col = colOf(x + newx);
+    int row = rowOf(y + newy);
+
+    // check hidden traps
+    if (grid.has(col, row, OccupancyGrid.TRAP))
+    {
+      // disarm it
+      grid.clear(col, row, OccupancyGrid.TRAP);
+      next = next.withTrapSprung(row * gridW + col);
+      say("TRAP IS SPRUNG!");
+      return trapVal;
+    }
+
+    // check visible barriers
+    if (grid.has(col, row, OccupancyGrid.BARRIER)) {
+      grid.clear(col, row, OccupancyGrid.BARRIER);
+      next = next.withBarrierSprung(row * gridW + col);
+      say("BARRIER IS SPRUNG!");
+      return trapVal;
+    }
+
+    say("THERE IS NO TRAP OR BARRIER HERE TO SPRING");
+    return -trapVal;
+  }
+
+  public int springAdjacentTraps() {
+    int[][] directions = {
+      {SPACE_SIZE, 0},
+      {-SPACE_SIZE, 0},
+      {0, SPACE_SIZE},
+      {0, -SPACE_SIZE}
+    };
+    int totalScore = 0;
+    boolean sprungAny = false;
+    for (int[] dir : directions) {
+      if (trapOrBarrierAtOffset(dir[0], dir[1])) {
+        totalScore += spring(dir[0], dir[1]);
+        sprungAny = true;
+      }
+    }
+    if (!sprungAny) {
+      say("NO TRAPS OR BARRIERS NEARBY TO SPRING");
+      totalScore -= trapVal;
+      return totalScore;
+    }
+    publish();
+    for (int[] dir : directions) {
+      changed(colOf(x + dir[0]), rowOf(y + dir[1]));
+    }
+    return totalScore;
+  }
+
+  private boolean trapOrBarrierAtOffset(int newx, int newy) {
+    return grid.has(colOf(x + newx), rowOf(y + newy), OccupancyGrid.TRAP | OccupancyGrid.BARRIER);
+  }
+
+  public boolean isBarrier(int newx, int newy)
+  {
+    if (grid.has(colOf(x + newx), rowOf(y + newy), OccupancyGrid.BARRIER)) {
+      say("A BARRIER IS AHEAD");
+      return true;
+    }
+    return false;
+  }
+
+  public int pickupPrize()
+  {
+    int col = colOf(x);
+    int row = rowOf(y);
+
+    if (grid.has(col, row, OccupancyGrid.PRIZE))
+    {
+      say("You collected a Amortentia Potion ingredient!");
+      grid.clear(col, row, OccupancyGrid.PRIZE);
+      next = next.withPrizeTaken(row * gridW + col);
+      publish();
+      coinsCollected++;
+      say("Ingredients collected: ", coinsCollected, " / ", getTotalCoins());
+      changed(col, row);
+      return prizeVal;
+    }
+    say("No potion ingredient here...");
+    return -prizeVal;
+  }
+
+  public int jumpPlayer(int incrx, int incry)
+  {
+    GameEvents.MoveEvent event = GameEvents.recording() ? new GameEvents.MoveEvent() : null;
+    if (event == null || !event.isEnabled()) {
+      return jump(incrx, incry);
+    }
+    event.begin();
+    int fromX = x;
+    int fromY = y;
+    int result = jump(incrx, incry);
+    moved(event, true, fromX, fromY, incrx, incry, result);
+    return result;
+  }
+
+  private int jump(int incrx, int incry)
+  {
+    int newX = x + incrx;
+    int newY = y + incry;
+
+    playerSteps++;
+
+    if (!grid.inBounds(colOf(newX), rowOf(newY)))
+    {
+      say("OFF THE GRID!");
+      if (metrics != null) {
+        metrics.offGrid();
+      }
+      return -offGridVal;
+    }
+
+    // the player stays put until the whole jump has been checked
+    int midX = x + incrx / 2;
+    int midY = y + incry / 2;
+    if (checkCollisionForPosition(midX, midY)) {
+      say("CANNOT JUMP - OBSTACLE IN THE WAY");
+      if (debugging()) {
+        log.debug("Jump from " + colOf(x) + "," + rowOf(y) + " blocked at " + colOf(midX) + "," + rowOf(midY));
+      }
+      if (metrics != null) {
+        metrics.hitWall();
+      }
+      return -hitWallVal;
+    }
+
+    if (checkCollisionForPosition(newX, newY)) {
+      say("CANNOT JUMP - OBSTACLE AT DESTINATION");
+      if (debugging()) {
+        log.debug("Jump from " + colOf(x) + "," + rowOf(y) + " blocked at " + colOf(newX) + "," + rowOf(newY));
+      }
+      if (metrics != null) {
+        metrics.hitWall();
+      }
+      return -hitWallVal;
+    }
+
+    if (isTrapAtPosition(newX, newY)) {
+      if (metrics != null) {
+        metrics.caught();
+      }
+      say("-----------------------------------------------------------");
+      say("You jumped into Snape's trap! Game over!");
+      say("You've been caught by Professor Snape!");
+      say("-----------------------------------------------------------");
+      gameOver = true;
+      say("You can quit (q) or replay (replay)");
+      return -1000;
+    }
+
+    int fromCol = colOf(x);
+    int fromRow = rowOf(y);
+    x = newX;
+    y = newY;
+    next = next.withPlayer(x, y);
+    publish();
+    changed(fromCol, fromRow);
+    changed(colOf(x), rowOf(y));
+    return 0;
+  }
+
+  // what stopped a step or jump is worked out afterwards, only when it is
+  // being recorded; a blocked move leaves the board as it was
+  private void moved(GameEvents.MoveEvent event, boolean jump, int fromX, int fromY, int incrx, int incry,
+                     int result)
+  {
+    event.end();
+    event.jump = jump;
+    event.fromCol = colOf(fromX);
+    event.fromRow = rowOf(fromY);
+    event.toCol = colOf(fromX + incrx);
+    event.toRow = rowOf(fromY + incry);
+    event.result = result;
+    if (result == 0) {
+      event.collision = "none";
+    } else if (!grid.inBounds(event.toCol, event.toRow)) {
+      event.collision = "off grid";
+    } else if (gameOver) {
+      event.collision = "trap";
+    } else if (!jump) {
+      event.collision = grid.has(event.toCol, event.toRow, OccupancyGrid.ROCK) ? "rock" : "barrier";
+    } else {
+      int col = colOf(fromX + incrx / 2);
+      int row = rowOf(fromY + incry / 2);
+      if (!grid.jumpBlocked(col, row)) {
+        col = event.toCol;
+        row = event.toRow;
+      }
+      event.collision = grid.has(col, row, OccupancyGrid.BARRIER) ? "barrier" : "wall";
+    }
+    event.commit();
+  }
+
+  private boolean checkCollisionForPosition(int posX, int posY) {
+    return grid.jumpBlocked(colOf(posX), rowOf(posY));
+  }
+
+  public int getSteps()
+  {
+    return playerSteps;
+  }
+
+  public void setPrizes(int p)
+  {
+    totalPrizes = p;
+  }
+
+  public int getCoinsCollected() {
+    return coinsCollected;
+  }
+
+  // prizes actually on the board, a crowded board may hold fewer than asked for
+  public int getTotalCoins() {
+    return layout == null ? totalPrizes : layout.getPrizeCells().length;
+  }
+
+  public boolean isGameOver() {
+    return gameOver;
+  }
+
+  public void resetGameOver() {
+    gameOver = false;
+  }
+
+  public boolean isTrapAtPosition(int posX, int posY) {
+    return grid.has(colOf(posX), rowOf(posY), OccupancyGrid.TRAP);
+  }
+
+  public void setTraps(int t)
+  {
+    totalTraps = t;
+  }
+
+  public void setWalls(int w)
+  {
+    totalWalls = w;
+  }
+
+  public void setRocks(int r)
+  {
+    totalRocks = r;
+  }
+
+  public void setBarriers(int b)
+  {
+    totalBarriers = b;
+  }
+
+  // how many of each object a new board asks for
+  public int getTotalWalls() { return totalWalls; }
+  public int getTotalPrizes() { return totalPrizes; }
+  public int getTotalTraps() { return totalTraps; }
+  public int getTotalRocks() { return totalRocks; }
+  public int getTotalBarriers() { return totalBarriers; }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public BoardLayout getLayout() {
+    return layout;
+  }
+
+  // boards come from the shared cache unless another one (or null for none) is given
+  public void setBoardCache(BoardCache c)
+  {
+    cache = c;
+  }
+
+  public int getGridWidth() {
+    return gridW;
+  }
+
+  public int getGridHeight() {
+    return gridH;
+  }
+
+  // latest published state, safe to read from any thread
+  public BoardSnapshot getSnapshot() { return snapshot; }
+
+  // live board state for the game thread, do not modify
+  public int getPlayerX() { return x; }
+  public int getPlayerY() { return y; }
+  public int getPlayerCol() { return colOf(x); }
+  public int getPlayerRow() { return rowOf(y); }
+  public OccupancyGrid getGrid() { return grid; }
+
+  // objects still on the board
+  public int getPrizesLeft() { return next.getPrizesLeft(); }
+  public int getTrapsLeft() { return next.getTrapsLeft(); }
+  public int getBarriersLeft() { return next.getBarriersLeft(); }
+
+  // board cell under a pixel position
+  private static int colOf(int px)
+  {
+    return Math.floorDiv(px - START_LOC_X, SPACE_SIZE);
+  }
+
+  private static int rowOf(int py)
+  {
+    return Math.floorDiv(py - START_LOC_Y, SPACE_SIZE);
+  }
+
+  // mixes the bits of a seed (splitmix64) so boards in a row look unrelated
+  private static long nextSeed(long s)
+  {
+    long z = s + 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  // make the grid show s, an earlier or later state of the same board
+  private void moveTo(BoardSnapshot s)
+  {
+    s.updateGrid(grid, next);
+    next = s;
+  }
+
+  // the same board from the start; only cells that changed are touched, so
+  // this takes as long on the biggest board as on the smallest
+  public int replay()
+  {
+    GameEvents.ReplayEvent event = GameEvents.recording() ? new GameEvents.ReplayEvent() : null;
+    if (event != null) {
+      event.begin();
+    }
+    int steps = playerSteps;
+    int win = playerAtEnd();
+
+    x = START_LOC_X;
+    y = START_LOC_Y;
+    moveTo(next.reset(x, y));
+    playerSteps = 0;
+    coinsCollected = 0;
+    gameOver = false;
+    publish();
+    changed();
+    if (event != null && event.isEnabled()) {
+      event.end();
+      event.seed = seed;
+      event.steps = steps;
+      event.bonus = win;
+      event.commit();
+    }
+    return win;
+  }
+
+  // go back (or forward) to a snapshot taken from getSnapshot on this board,
+  // with the steps and game over state from that moment; only objects that
+  // differ between the two are touched, whatever the size of the board
+  public void restore(BoardSnapshot s, int steps, boolean over)
+  {
+    if (!s.sameBoard(next)) {
+      throw new IllegalArgumentException("snapshot is from another board");
+    }
+    moveTo(s);
+    x = s.getPlayerX();
+    y = s.getPlayerY();
+    playerSteps = steps;
+    coinsCollected = s.getPrizesTaken();
+    gameOver = over;
+    publish();
+    changed();
+  }
+
+  // score bonus for finishing in the last column
+  public int endGame()
+  {
+    return playerAtEnd();
+  }
+
+  private boolean checkCollision(int newX, int newY, int incrx, int incry) {
+    int col = colOf(newX);
+    int row = rowOf(newY);
+
+    // walls never stop a single step: the player's center point sits 20px
+    // into the cell and walls only cover the outer 5px of an edge, so only
+    // jumps (which test the whole player box) are blocked by them
+
+    if (grid.has(col, row, OccupancyGrid.ROCK)) {
+      say("A ROCK IS IN THE WAY");
+      if (debugging()) {
+        log.debug("Step from " + colOf(x) + "," + rowOf(y) + " blocked by a rock at " + col + "," + row);
+      }
+      return true;
+    }
+
+    if (grid.has(col, row, OccupancyGrid.BARRIER)) {
+      say("A BARRIER IS IN THE WAY");
+      if (debugging()) {
+        log.debug("Step from " + colOf(x) + "," + rowOf(y) + " blocked by a barrier at " + col + "," + row);
+      }
+      return true;
+    }
+
+    return false;
+  }
+
+  private int playerAtEnd()
+  {
+    int score;
+
+    // last column is the way out
+    if (colOf(x) == gridW - 1)
+    {
+      say("YOU MADE IT!");
+      score = endVal;
+    }
+    else
+    {
+      say("OOPS, YOU QUIT TOO SOON!");
+      score = -endVal;
+    }
+    return score;
+
+  }
+}
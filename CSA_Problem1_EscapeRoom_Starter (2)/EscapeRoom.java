@@ -1,16 +1,83 @@
+// console entry point, all game state lives in the GameSession it starts
 public class EscapeRoom
 {
-
-  private static final int SPACE_SIZE = 60;
-  private static int score = 0;
-  private static int points = 0;
-  private static GameGUI game;
-  private static boolean play = true;
-  private static String playerHouse = "";
-  private static java.util.Scanner scanner = new java.util.Scanner(System.in);
+  // slots in a new saves file
+  static final int SAVE_SLOTS = 100;
+  // game messages that can wait for the console before the game does
+  static final int LOG_CAPACITY = 4096;
 
   public static void main(String[] args) 
   {      
+    StartupMetrics startup = new StartupMetrics();
+    boolean headless = java.awt.GraphicsEnvironment.isHeadless();
+    int gridW = 8;
+    int gridH = 5;
+    // same seed gives the same dungeon, e.g. a daily challenge
+    Long seed = null;
+    // command scripts to play without a console, "-" reads stdin
+    java.util.List<String> scripts = new java.util.ArrayList<String>();
+    // print how long each startup step took when the game ends
+    boolean timings = false;
+    // most frames a second the window draws, 0 draws every change
+    int fps = GameGUI.MAX_FPS;
+    // file to write every command into, for JournalReplay
+    String journalFile = null;
+    // where save and load keep games
+    String savesFile = "escaperoom.saves";
+    // least important game messages shown
+    GameLog.Level logLevel = GameLog.Level.INFO;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--headless")) {
+        headless = true;
+      } else if (args[i].equals("--size") && i + 1 < args.length) {
+        // dungeon size in cells, e.g. --size 200x200
+        String[] dims = args[++i].toLowerCase().split("x");
+        try {
+          gridW = Integer.parseInt(dims[0]);
+          gridH = Integer.parseInt(dims[1]);
+        } catch (Exception e) {
+          System.out.println("Could not read size " + args[i] + ", using 8x5");
+        }
+      } else if (args[i].equals("--seed") && i + 1 < args.length) {
+        try {
+          seed = Long.parseLong(args[++i]);
+        } catch (NumberFormatException e) {
+          System.out.println("Could not read seed " + args[i] + ", using a random dungeon");
+        }
+      } else if (args[i].equals("--batch") && i + 1 < args.length) {
+        scripts.add(args[++i]);
+      } else if (args[i].equals("--timings")) {
+        timings = true;
+      } else if (args[i].equals("--journal") && i + 1 < args.length) {
+        journalFile = args[++i];
+      } else if (args[i].equals("--saves") && i + 1 < args.length) {
+        savesFile = args[++i];
+      } else if (args[i].equals("--log") && i + 1 < args.length) {
+        GameLog.Level l = GameLog.level(args[++i]);
+        if (l != null) {
+          logLevel = l;
+        } else {
+          System.out.println("Could not read log level " + args[i] + ", using " + logLevel);
+        }
+      } else if (args[i].equals("--fps") && i + 1 < args.length) {
+        try {
+          fps = Integer.parseInt(args[++i]);
+        } catch (NumberFormatException e) {
+          System.out.println("Could not read fps " + args[i] + ", using " + fps);
+        }
+      }
+    }
+    if (!scripts.isEmpty()) {
+      runBatch(scripts, seed == null ? new java.util.Random().nextLong() : seed, gridW, gridH);
+      return;
+    }
+
+    // sprites decode in the background while the player picks a house
+    java.util.concurrent.CompletableFuture<SpriteAtlas> sprites = null;
+    if (!headless) {
+      sprites = SpriteAtlas.loadAsync().whenComplete((atlas, e) -> startup.mark("sprites"));
+    }
+
     System.out.println("-----------------------------------------------------------");
     System.out.println(" Welcome to Hogwarts: Escape from Snape's Dungeon!");
     System.out.println("-----------------------------------------------------------");
@@ -18,196 +85,146 @@ public class EscapeRoom
     System.out.println("Collect all Amortentia ingredients to escape!");
     System.out.println("But beware - Snape has set traps throughout the dungeon...\n");
     
-    selectHouse();
-    
-    game = new GameGUI(playerHouse);
-    game.createBoard();
-    game.updateScore(score);
+    java.util.Scanner scanner = new java.util.Scanner(System.in);
+    String playerHouse = selectHouse(scanner);
+    startup.mark("house");
     
-    while (play) {
-      System.out.print("> ");
-      String command = scanner.nextLine().trim().toLowerCase();
-      if (!command.isEmpty()) {
-        processCommand(command);
-      }
+    DungeonEngine engine = newEngine(gridW, gridH);
+    // from here on the game's messages are written by a background thread;
+    // anything printed during the game goes through log to stay in order
+    GameLog log = GameLog.async(new java.io.FileOutputStream(java.io.FileDescriptor.out), logLevel, LOG_CAPACITY);
+    GameSession session = new GameSession(engine, playerHouse, null);
+    session.setLog(log);
+    session.setMetrics(GameMetrics.shared());
+    // the window is built on the event thread while this one makes the board
+    java.util.concurrent.CompletableFuture<GameGUI> window = null;
+    if (!headless) {
+      window = openWindow(playerHouse, engine, sprites, startup, fps);
     }
-  }
-  
-  private static void processCommand(String command) {
-    String[] validCommands = { "right", "left", "up", "down", "r", "l", "u", "d",
-        "jr", "jl", "ju", "jd", "jumpright", "jumpleft", "jumpup", "jumpdown",
-        "pickup", "p", "quit", "q", "replay", "help", "?", "spring", "s"};
-    
-    boolean isValid = false;
-    for (String valid : validCommands) {
-      if (command.equals(valid)) {
-        isValid = true;
-        break;
-      }
+    if (seed != null) {
+      engine.createBoard(seed);
+    } else {
+      engine.createBoard();
     }
-    
-    if (!isValid) {
-      System.out.println("Invalid command: " + command);
-      score -= 2;
-      game.updateScore(score);
-      return;
+    startup.mark("board");
+    log.info("Dungeon seed: ", engine.getSeed());
+    GameJournal journal = null;
+    if (journalFile != null) {
+      try {
+        journal = GameJournal.create(java.nio.file.Paths.get(journalFile), engine, playerHouse);
+        session.setJournal(journal);
+      } catch (java.io.IOException e) {
+        log.player("Could not write journal " + journalFile + ": " + e.getMessage());
+      }
     }
-    
-    if (game.isGameOver()) {
-      if (command.equals("quit") || command.equals("q")) {
-        System.out.println("Final score: " + score);
-        System.out.println("Final points: " + points);
-        System.out.println("Total steps: " + game.getSteps());
-        play = false;
-        System.exit(0);
-      } else if (command.equals("replay")) {
-        System.out.println("Player score: " + score);
-        System.out.println("Player steps: " + game.getSteps());
-        int replayBonus = game.replay();
-        score = 0 + replayBonus;
-        points = 0;
-        game.updateScore(score);
-        game.resetGameOver();
-        System.out.println("Game reset! Starting new game...");
-        return;
-      } else {
-        System.out.println("GAME OVER! Snape has caught you!");
-        System.out.println("You can quit (q) or replay (replay)");
-        return;
+    GameGUI gui = null;
+    if (window != null) {
+      try {
+        gui = window.join();
+        session.setGame(gui);
+      } catch (java.util.concurrent.CompletionException e) {
+        log.player("Could not open the game window, playing without it");
       }
     }
     
-    if (command.equals("right") || command.equals("r")) {
-      int result = game.movePlayer(SPACE_SIZE, 0);
-      score += result;
-      score++;
-      if (result == 0) {
-        points++;
-        System.out.println("Points: " + points);
+    // opened the first time the player saves or loads
+    SaveStore saves = null;
+    while (session.isPlaying()) {
+      log.prompt("> ");
+      String command = scanner.nextLine().trim().toLowerCase();
+      if (command.startsWith("save") || command.startsWith("load")) {
+        if (saves == null && savesFile != null) {
+          saves = openSaves(savesFile, log);
+          if (saves == null) {
+            // said why once, save and load are invalid commands from now on
+            savesFile = null;
+          }
+        }
+        String reply = saves == null ? null : saves.command(command, session);
+        if (reply != null) {
+          log.player(reply);
+          continue;
+        }
       }
-    }
-    else if (command.equals("left") || command.equals("l")) {
-      int result = game.movePlayer(-SPACE_SIZE, 0);
-      score += result;
-      score++;
-      if (result == 0) {
-        points++;
-        System.out.println("Points: " + points);
+      if (!command.isEmpty()) {
+        session.processCommand(command);
+        startup.mark("first command");
+        if (journal != null) {
+          // a bug report needs the commands up to the crash
+          journal.flush();
+        }
       }
     }
-    else if (command.equals("up") || command.equals("u")) {
-      int result = game.movePlayer(0, -SPACE_SIZE);
-      score += result;
-      score++;
-      if (result == 0) {
-        points++;
-        System.out.println("Points: " + points);
-      }
+    if (journal != null) {
+      journal.finish(session);
     }
-    else if (command.equals("down") || command.equals("d")) {
-      int result = game.movePlayer(0, SPACE_SIZE);
-      score += result;
-      score++;
-      if (result == 0) {
-        points++;
-        System.out.println("Points: " + points);
-      }
+    if (saves != null) {
+      saves.close();
     }
-    else if (command.equals("jr") || command.equals("jumpright")) {
-      int result = game.jumpPlayer(2 * SPACE_SIZE, 0);
-      score += result;
-      if (result == -1000) {
-        return;
-      }
-      score++;
-      if (result == 0) {
-        points++;
-        System.out.println("Points: " + points);
+    log.close();
+    if (timings) {
+      System.out.println(startup);
+      if (gui != null) {
+        System.out.println(gui.getRenderScheduler());
       }
+      System.out.println(GameMetrics.shared());
     }
-    else if (command.equals("jl") || command.equals("jumpleft")) {
-      int result = game.jumpPlayer(-2 * SPACE_SIZE, 0);
-      score += result;
-      if (result == -1000) {
-        return;
-      }
-      score++;
-      if (result == 0) {
-        points++;
-        System.out.println("Points: " + points);
-      }
+    System.exit(0);
+  }
+  
+  private static DungeonEngine newEngine(int gridW, int gridH) {
+    try {
+      return new DungeonEngine(gridW, gridH);
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage() + ", using 8x5");
+      return new DungeonEngine();
     }
-    else if (command.equals("ju") || command.equals("jumpup")) {
-      int result = game.jumpPlayer(0, -2 * SPACE_SIZE);
-      score += result;
-      if (result == -1000) {
-        return;
-      }
-      score++;
-      if (result == 0) {
-        points++;
-        System.out.println("Points: " + points);
-      }
+  }
+  
+  private static SaveStore openSaves(String file, GameLog log) {
+    try {
+      return SaveStore.open(java.nio.file.Paths.get(file), SAVE_SLOTS);
+    } catch (java.io.IOException e) {
+      log.player("Could not open saves " + file + ": " + e.getMessage());
+      return null;
     }
-    else if (command.equals("jd") || command.equals("jumpdown")) {
-      int result = game.jumpPlayer(0, 2 * SPACE_SIZE);
-      score += result;
-      if (result == -1000) {
-        return;
-      }
-      score++;
-      if (result == 0) {
-        points++;
-        System.out.println("Points: " + points);
+  }
+  
+  // build and show the window on the event thread once the sprites are in
+  private static java.util.concurrent.CompletableFuture<GameGUI> openWindow(String playerHouse,
+      DungeonEngine engine, java.util.concurrent.CompletableFuture<SpriteAtlas> sprites,
+      StartupMetrics startup, int fps) {
+    java.util.concurrent.CompletableFuture<GameGUI> window = new java.util.concurrent.CompletableFuture<GameGUI>();
+    javax.swing.SwingUtilities.invokeLater(() -> {
+      try {
+        GameGUI gui = new GameGUI(playerHouse, engine, sprites.join(), true);
+        gui.setMaxFps(fps);
+        gui.setMetrics(GameMetrics.shared());
+        gui.onFirstFrame(() -> startup.mark("first frame"));
+        startup.mark("window");
+        window.complete(gui);
+      } catch (RuntimeException | java.awt.AWTError e) {
+        // no display to show it on
+        window.completeExceptionally(e);
       }
-    }
-    else if (command.equals("pickup") || command.equals("p")) { 
-      int result = game.pickupPrize();
-      score += result;
-      
-      if (game.getCoinsCollected() == game.getTotalCoins()) {
-        System.out.println("-----------------------------------------------------------");
-        System.out.println("All Amortentia potion ingredients collected!");
-        System.out.println("Congratulations! You escaped Snape's dungeon!");
-        System.out.println(playerHouse + " has triumphed once again!");
-        System.out.println("Final score: " + score);
-        System.out.println("Total steps: " + game.getSteps());
-        System.out.println("-----------------------------------------------------------");
-        play = false;
-        System.exit(0);
+    });
+    return window;
+  }
+  
+  // play each script on the same dungeon and print one summary line per script
+  private static void runBatch(java.util.List<String> scripts, long seed, int gridW, int gridH) {
+    for (String name : scripts) {
+      try (java.io.BufferedReader in = name.equals("-")
+          ? new java.io.BufferedReader(new java.io.InputStreamReader(System.in))
+          : java.nio.file.Files.newBufferedReader(java.nio.file.Paths.get(name))) {
+        System.out.println(BatchRunner.summary(BatchRunner.run(seed, gridW, gridH, in)));
+      } catch (java.io.IOException | IllegalArgumentException e) {
+        System.out.println("Could not play " + name + ": " + e.getMessage());
       }
     }
-    else if (command.equals("spring") || command.equals("s")) {
-      score += game.springAdjacentTraps();
-    }
-    else if (command.equals("help") || command.equals("?")) {
-      printHelp();
-    }
-    else if (command.equals("replay")) {
-      System.out.println("Player score: " + score);
-      System.out.println("Player steps: " + game.getSteps());
-      int replayBonus = game.replay();
-      score = 0 + replayBonus;
-      points = 0;
-      game.updateScore(score);
-      game.resetGameOver();
-      System.out.println("The dungeon has been reset! Starting new game...");
-    }
-    else if (command.equals("quit") || command.equals("q")) {
-      score += game.endGame();
-      System.out.println("\nYou have left Snape's dungeon.");
-      System.out.println("Final score: " + score);
-      System.out.println("Final points: " + points);
-      System.out.println("Total steps: " + game.getSteps());
-      System.out.println("Until we meet again, " + playerHouse + "!\n");
-      play = false;
-      System.exit(0);
-    }
-    
-    game.updateScore(score);
   }
   
-  private static void selectHouse() {
+  private static String selectHouse(java.util.Scanner scanner) {
     System.out.println("Which Hogwarts house are you from?");
     System.out.println("1. Gryffindor (Gryffindor.png)");
     System.out.println("2. Hufflepuff (Hufflepuff.png)");
@@ -216,6 +233,7 @@ public class EscapeRoom
     System.out.print("Enter your choice (1-4): ");
     
     String choice = scanner.nextLine().trim();
+    String playerHouse;
     
     switch(choice) {
       case "1":
@@ -240,41 +258,8 @@ public class EscapeRoom
         break;
     }
     System.out.println("Your house crest will be displayed as your player character.\n");
-  }
-  
-  public static String getPlayerHouse() {
     return playerHouse;
   }
-  
-  private static void printHelp() {
-    System.out.println("\n-----------------------------------------------------------");
-    System.out.println(" HOGWARTS DUNGEON ESCAPE - COMMANDS");
-    System.out.println("-----------------------------------------------------------");
-    System.out.println("\nMovement:");
-    System.out.println("  right, r    - Move right one space (gains 1 point)");
-    System.out.println("  left, l     - Move left one space (gains 1 point)");
-    System.out.println("  up, u       - Move up one space (gains 1 point)");
-    System.out.println("  down, d     - Move down one space (gains 1 point)");
-    System.out.println("\nJump (2 spaces):");
-    System.out.println("  jr, jumpright  - Jump right two spaces (gains 1 point)");
-    System.out.println("  jl, jumpleft   - Jump left two spaces (gains 1 point)");
-    System.out.println("  ju, jumpup     - Jump up two spaces (gains 1 point)");
-    System.out.println("  jd, jumpdown   - Jump down two spaces (gains 1 point)");
-    System.out.println("\nActions:");
-    System.out.println("  pickup, p   - Pick up a Amortentia Potion ingredient");
-    System.out.println("  spring, s   - Disarm a trap or barrier adjacent to you");
-    System.out.println("\nGame Rules:");
-    System.out.println("  - You gain 1 point each time you move successfully");
-    System.out.println("  - Collect all potion ingredients to escape");
-    System.out.println("  - Cannot move into Snape's traps, but jumping into one ends the game!");
-    System.out.println("  - Hidden traps show 'ANOMALY DETECTED NEARBY' when nearby");
-    System.out.println("  - Rocks can be jumped over. Barriers block jumps but can be disarmed.");
-    System.out.println("\nOther:");
-    System.out.println("  help, ?     - Show this help message");
-    System.out.println("  replay     - Reset the dungeon (shows steps)");
-    System.out.println("  quit, q    - End the game");
-    System.out.println("-----------------------------------------------------------\n");
-  }
 }
 
         
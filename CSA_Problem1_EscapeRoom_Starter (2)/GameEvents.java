@@ -0,0 +1,196 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+
+// Java Flight Recorder events for what the game does, so a slow spot in a
+// recording can be matched to the command, move, board or frame behind it.
+// All are off unless a recording turns them on, e.g.
+//   java -XX:StartFlightRecording:filename=game.jfr,settings=escaperoom.jfc EscapeRoom
+// with escaperoom.jfc setting escaperoom.*#enabled to true, or in JMC.
+// Making the first event registers JFR's event classes, a few hundred
+// milliseconds, so callers make one only while recording() is true and check
+// isEnabled before filling it in. recording() is a volatile read, and with no
+// recording the event classes are never loaded. Each new board looks for the
+// recorder, so a recording started with jcmd is seen from the next board on
+final class GameEvents
+{
+  // a recording is running; set by a listener on the recorder
+  private static volatile boolean on;
+  private static boolean watching;
+
+  private GameEvents()
+  {
+  }
+
+  static boolean recording()
+  {
+    return on;
+  }
+
+  // once the recorder is up, listen for recordings starting and stopping;
+  // until then this loads nothing more of JFR than FlightRecorder itself
+  static synchronized void look()
+  {
+    if (!watching && FlightRecorder.isInitialized()) {
+      watching = true;
+      FlightRecorder.addListener(new Watch());
+    }
+  }
+
+  private static final class Watch implements FlightRecorderListener
+  {
+    public void recorderInitialized(FlightRecorder recorder)
+    {
+      update(recorder);
+    }
+
+    public void recordingStateChanged(Recording recording)
+    {
+      update(FlightRecorder.getFlightRecorder());
+    }
+
+    private static void update(FlightRecorder recorder)
+    {
+      boolean running = false;
+      for (Recording r : recorder.getRecordings()) {
+        running |= r.getState() == RecordingState.RUNNING;
+      }
+      on = running;
+    }
+  }
+
+  @Name("escaperoom.Command")
+  @Label("Command")
+  @Description("One command from the player, from being read to its reply")
+  @Category("EscapeRoom")
+  @Enabled(false)
+  @StackTrace(false)
+  static final class CommandEvent extends Event
+  {
+    @Label("Typed")
+    String typed;
+
+    @Label("Command")
+    @Description("What it was read as, INVALID if nothing")
+    String command;
+
+    @Label("Score Change")
+    int scoreChange;
+
+    @Label("Steps")
+    int steps;
+
+    @Label("Outcome")
+    String outcome;
+  }
+
+  @Name("escaperoom.Move")
+  @Label("Move")
+  @Description("A step or jump and what stopped it, if anything")
+  @Category("EscapeRoom")
+  @Enabled(false)
+  @StackTrace(false)
+  static final class MoveEvent extends Event
+  {
+    @Label("Jump")
+    boolean jump;
+
+    @Label("From Column")
+    int fromCol;
+
+    @Label("From Row")
+    int fromRow;
+
+    @Label("To Column")
+    int toCol;
+
+    @Label("To Row")
+    int toRow;
+
+    @Label("Result")
+    @Description("Score change, 0 when the player moved")
+    int result;
+
+    @Label("Collision")
+    @Description("none, off grid, rock, barrier, wall or trap")
+    String collision;
+  }
+
+  @Name("escaperoom.CreateBoard")
+  @Label("Create Board")
+  @Description("A board generated or taken from the cache")
+  @Category("EscapeRoom")
+  @Enabled(false)
+  @StackTrace(false)
+  static final class CreateBoardEvent extends Event
+  {
+    @Label("Seed")
+    long seed;
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+
+    @Label("Cached")
+    boolean cached;
+
+    @Label("Cells Skipped")
+    @Description("Cells drawn for a rock or barrier that would not fit there")
+    int skipped;
+
+    @Label("Rocks Removed")
+    @Description("Rocks taken out so every prize can be reached")
+    int rocksRemoved;
+
+    @Label("Objects")
+    int objects;
+  }
+
+  @Name("escaperoom.Replay")
+  @Label("Replay")
+  @Description("The board set back to its start")
+  @Category("EscapeRoom")
+  @Enabled(false)
+  @StackTrace(false)
+  static final class ReplayEvent extends Event
+  {
+    @Label("Seed")
+    long seed;
+
+    @Label("Steps")
+    @Description("Steps taken before starting over")
+    int steps;
+
+    @Label("Bonus")
+    int bonus;
+  }
+
+  @Name("escaperoom.Paint")
+  @Label("Paint")
+  @Description("One paintComponent call")
+  @Category("EscapeRoom")
+  @Enabled(false)
+  @StackTrace(false)
+  static final class PaintEvent extends Event
+  {
+    @Label("Clip Width")
+    int clipWidth;
+
+    @Label("Clip Height")
+    int clipHeight;
+
+    @Label("Layer Redrawn")
+    @Description("The walls and rocks in view were drawn again")
+    boolean layerRedrawn;
+  }
+}
@@ -0,0 +1,289 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// a game written down as it is played: the board, then one entry for every
+// command, so the exact game can be played again later (see JournalReplay)
+//
+// file layout, big endian:
+//   int "EJNL", byte version, long seed, int width, int height,
+//   int walls, prizes, traps, rocks and barriers asked for,
+//   long start time (epoch ms), byte house length, house (UTF-8)
+//   per command: byte Command ordinal (INVALID for anything else), then the
+//   ms since the previous entry as a varint (7 bits a byte, low bits first)
+//   when the game is closed: byte END, int score, int points, int steps
+// a journal cut short (the game was killed) reads up to its last whole entry;
+// one with a byte no entry could hold is refused, saying where it is
+public class GameJournal implements AutoCloseable
+{
+  static final int MAGIC = 0x454A4E4C;
+  static final int VERSION = 1;
+  static final int INVALID = 0xFF;
+  static final int END = 0xFE;
+  private static final int BUFFER_SIZE = 8192;
+
+  private FileChannel channel;
+  // entries collect here and go to the file a buffer at a time
+  private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  // time of the last entry, entries store the gap since
+  private long last;
+
+  private GameJournal(FileChannel channel)
+  {
+    this.channel = channel;
+  }
+
+  // start a journal for a board that has just been made, replacing file
+  public static GameJournal create(Path file, DungeonEngine engine, String house) throws IOException
+  {
+    GameJournal j = new GameJournal(FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    byte[] name = house.getBytes(StandardCharsets.UTF_8);
+    j.last = System.currentTimeMillis();
+    j.buffer.putInt(MAGIC).put((byte)VERSION).putLong(engine.getSeed())
+        .putInt(engine.getGridWidth()).putInt(engine.getGridHeight())
+        .putInt(engine.getTotalWalls()).putInt(engine.getTotalPrizes()).putInt(engine.getTotalTraps())
+        .putInt(engine.getTotalRocks()).putInt(engine.getTotalBarriers())
+        .putLong(j.last).put((byte)Math.min(name.length, 255)).put(name, 0, Math.min(name.length, 255));
+    return j;
+  }
+
+  // one command as the session got it, null for an invalid one; a journal
+  // that cannot be written says so once and then records nothing
+  public void record(Command cmd)
+  {
+    if (channel == null) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    long gap = Math.max(0, now - last);
+    last = now;
+    // a code and at most a 10 byte varint
+    if (buffer.remaining() < 11) {
+      drain();
+    }
+    buffer.put((byte)(cmd == null ? INVALID : cmd.ordinal()));
+    while (gap >= 0x80) {
+      buffer.put((byte)(gap | 0x80));
+      gap >>>= 7;
+    }
+    buffer.put((byte)gap);
+  }
+
+  // write out what is buffered, e.g. after each command a person types
+  public void flush()
+  {
+    if (channel != null) {
+      drain();
+    }
+  }
+
+  // end the journal with how the game stood, then close it
+  public void finish(GameSession session)
+  {
+    if (channel == null) {
+      return;
+    }
+    if (buffer.remaining() < 13) {
+      drain();
+    }
+    buffer.put((byte)END).putInt(session.getScore()).putInt(session.getPoints()).putInt(session.getSteps());
+    close();
+  }
+
+  public void close()
+  {
+    if (channel == null) {
+      return;
+    }
+    drain();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      System.err.println("Could not close journal: " + e.getMessage());
+    }
+    channel = null;
+  }
+
+  private void drain()
+  {
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } catch (IOException e) {
+      System.err.println("Could not write journal, no longer recording: " + e.getMessage());
+      try {
+        channel.close();
+      } catch (IOException ignored) {
+        // already failing
+      }
+      channel = null;
+    }
+    buffer.clear();
+  }
+
+  public static Recording read(Path file) throws IOException
+  {
+    return new Recording(ByteBuffer.wrap(Files.readAllBytes(file)));
+  }
+
+  // a journal read back in
+  public static class Recording
+  {
+    final long seed;
+    final int width;
+    final int height;
+    final int walls;
+    final int prizes;
+    final int traps;
+    final int rocks;
+    final int barriers;
+    final long start;
+    final String house;
+    // Command ordinal or INVALID per entry, and ms since the entry before
+    final byte[] codes;
+    final int[] gaps;
+    final int count;
+    // how the game stood when it was closed, if it was
+    final boolean finished;
+    final int score;
+    final int points;
+    final int steps;
+
+    Recording(ByteBuffer in) throws IOException
+    {
+      try {
+        if (in.getInt() != MAGIC || in.get() != VERSION) {
+          throw new IOException("not a journal, or from another version");
+        }
+        seed = in.getLong();
+        width = in.getInt();
+        height = in.getInt();
+        walls = in.getInt();
+        prizes = in.getInt();
+        traps = in.getInt();
+        rocks = in.getInt();
+        barriers = in.getInt();
+        start = in.getLong();
+        byte[] name = new byte[in.get() & 0xFF];
+        in.get(name);
+        house = new String(name, StandardCharsets.UTF_8);
+      } catch (BufferUnderflowException e) {
+        throw new IOException("journal ends inside its header");
+      }
+
+      // every entry is at least two bytes
+      byte[] c = new byte[in.remaining() / 2 + 1];
+      int[] g = new int[c.length];
+      int n = 0;
+      boolean done = false;
+      int s = 0;
+      int p = 0;
+      int t = 0;
+      int commands = Command.values().length;
+      try {
+        while (in.hasRemaining()) {
+          int at = in.position();
+          int code = in.get() & 0xFF;
+          if (code == END) {
+            s = in.getInt();
+            p = in.getInt();
+            t = in.getInt();
+            done = true;
+            break;
+          }
+          if (code >= commands && code != INVALID) {
+            throw new IOException("malformed entry " + n + " at byte " + at + ": no command " + code);
+          }
+          long gap = 0;
+          int shift = 0;
+          int b;
+          do {
+            b = in.get();
+            gap |= (long)(b & 0x7F) << shift;
+            shift += 7;
+          } while ((b & 0x80) != 0);
+          c[n] = (byte)code;
+          g[n] = (int)Math.min(gap, Integer.MAX_VALUE);
+          n++;
+        }
+      } catch (BufferUnderflowException e) {
+        // cut short, keep the whole entries
+      }
+      codes = c;
+      gaps = g;
+      count = n;
+      finished = done;
+      score = s;
+      points = p;
+      steps = t;
+    }
+
+    public int getCount() {
+      return count;
+    }
+
+    public String getHouse() {
+      return house;
+    }
+
+    public boolean isFinished() {
+      return finished;
+    }
+
+    // an engine and session on the recorded board, ready to play it again
+    public GameSession newSession(PrintStream out)
+    {
+      DungeonEngine engine = new DungeonEngine(width, height);
+      engine.setWalls(walls);
+      engine.setPrizes(prizes);
+      engine.setTraps(traps);
+      engine.setRocks(rocks);
+      engine.setBarriers(barriers);
+      GameSession session = new GameSession(engine, house, out);
+      engine.createBoard(seed);
+      return session;
+    }
+
+    // command of entry i, null for an invalid one
+    public Command command(int i)
+    {
+      int code = codes[i] & 0xFF;
+      return code == INVALID ? null : Command.values()[code];
+    }
+
+    public int gap(int i) {
+      return gaps[i];
+    }
+
+    // play every entry, as fast as possible
+    public void play(GameSession session)
+    {
+      Command[] all = Command.values();
+      for (int i = 0; i < count; i++) {
+        int code = codes[i] & 0xFF;
+        session.process(code == INVALID ? null : all[code]);
+      }
+    }
+
+    // null if the session ended the way the journal did, otherwise how not
+    public String mismatch(GameSession session)
+    {
+      if (!finished) {
+        return null;
+      }
+      if (session.getScore() == score && session.getPoints() == points && session.getSteps() == steps) {
+        return null;
+      }
+      return "journal says score " + score + " points " + points + " steps " + steps;
+    }
+  }
+}
@@ -0,0 +1,299 @@
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// where game messages go, by level: PLAYER is what the player has to see,
+// INFO notes around the game, DEBUG how the engine got there. A message under
+// the log's level costs one compare, and debug callers check isDebug first
+// so the message is never even built.
+//
+// A log either writes straight to its stream, as a server reply must before
+// its status line, or is async: messages go into a ring buffer and a writer
+// thread prints them and flushes once it has caught up, so the game never
+// waits on the console. A message with numbers or a second text
+// (player("Points: ", 3)) is stored in parts and joined on the writer thread,
+// so a message under the level is never built. Only one thread may
+// write to an async log at a time, the game's, and it never waits on it: if
+// the console has fallen a whole ring behind, messages of every level are
+// dropped and counted, and the count is written as one line in their place
+// once there is room again. A player who sees that line can scroll on, where
+// a game that stalled would stall every player on the same console
+public class GameLog implements AutoCloseable
+{
+  public enum Level { DEBUG, INFO, PLAYER, OFF }
+
+  // the console at INFO, written straight through, for engines and sessions
+  // that were given nothing else
+  private static final GameLog CONSOLE = new GameLog(System.out, Level.INFO);
+
+  // what a ring slot holds
+  private static final byte LINE = 0;
+  private static final byte LINE_NUMBER = 1;
+  // no line break, e.g. a prompt
+  private static final byte TEXT = 2;
+  private static final byte LINE_TEXT = 3;
+  private static final byte LINE_TWO_NUMBERS = 4;
+
+  private final PrintStream out;
+  private final Level level;
+
+  // async only: slots are texts[i & mask] and so on, filled at tail by the
+  // game and emptied at head by the writer
+  private final String[] texts;
+  private final long[] numbers;
+  private final String[] texts2;
+  private final long[] numbers2;
+  private final byte[] kinds;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong head = new AtomicLong();
+  // everything before this has been written and flushed
+  private final AtomicLong flushed = new AtomicLong();
+  private final Thread writer;
+  private volatile boolean sleeping;
+  private volatile boolean closed;
+  private long dropped;
+  // dropped since the last message that fit, not yet reported
+  private long unreported;
+
+  // straight to out, on the calling thread
+  public GameLog(PrintStream out, Level level)
+  {
+    this.out = out;
+    this.level = level;
+    texts = null;
+    numbers = null;
+    texts2 = null;
+    numbers2 = null;
+    kinds = null;
+    mask = 0;
+    writer = null;
+  }
+
+  private GameLog(OutputStream out, Level level, int capacity)
+  {
+    this.out = new PrintStream(new BufferedOutputStream(out, 8192), false, StandardCharsets.UTF_8);
+    this.level = level;
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    texts = new String[size];
+    numbers = new long[size];
+    texts2 = new String[size];
+    numbers2 = new long[size];
+    kinds = new byte[size];
+    mask = size - 1;
+    writer = new Thread(this::drain, "game log");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  public static GameLog console()
+  {
+    return CONSOLE;
+  }
+
+  // written by a background thread, capacity messages can wait for it
+  public static GameLog async(OutputStream out, Level level, int capacity)
+  {
+    return new GameLog(out, level, capacity);
+  }
+
+  // debug, info, player or off, null if it is none of them
+  public static Level level(String name)
+  {
+    for (Level l : Level.values()) {
+      if (l.name().equalsIgnoreCase(name)) {
+        return l;
+      }
+    }
+    return null;
+  }
+
+  public Level getLevel() {
+    return level;
+  }
+
+  public boolean isEnabled(Level l) {
+    return l.ordinal() >= level.ordinal() && l != Level.OFF;
+  }
+
+  public boolean isDebug() {
+    return level == Level.DEBUG;
+  }
+
+  public void player(String message) {
+    log(Level.PLAYER, LINE, message, 0, null, 0);
+  }
+
+  // message followed by n, joined only when written
+  public void player(String message, long n) {
+    log(Level.PLAYER, LINE_NUMBER, message, n, null, 0);
+  }
+
+  // message followed by more, e.g. what the player typed
+  public void player(String message, String more) {
+    log(Level.PLAYER, LINE_TEXT, message, 0, more, 0);
+  }
+
+  // message, n, then more and m, e.g. "Score: ", 4, ", steps: ", 2
+  public void player(String message, long n, String more, long m) {
+    log(Level.PLAYER, LINE_TWO_NUMBERS, message, n, more, m);
+  }
+
+  public void info(String message) {
+    log(Level.INFO, LINE, message, 0, null, 0);
+  }
+
+  public void info(String message, long n) {
+    log(Level.INFO, LINE_NUMBER, message, n, null, 0);
+  }
+
+  public void debug(String message) {
+    log(Level.DEBUG, LINE, message, 0, null, 0);
+  }
+
+  // a player-facing message without a line break
+  public void prompt(String text) {
+    log(Level.PLAYER, TEXT, text, 0, null, 0);
+  }
+
+  private void log(Level l, byte kind, String text, long n, String text2, long n2)
+  {
+    if (l.ordinal() < level.ordinal()) {
+      return;
+    }
+    if (writer == null) {
+      write(kind, text, n, text2, n2);
+      if (kind == TEXT) {
+        out.flush();
+      }
+      return;
+    }
+    long t = tail.get();
+    // slots needed past the one at tail: one more for the dropped count
+    int extra = unreported > 0 ? 1 : 0;
+    if (closed || t + extra - head.get() > mask) {
+      dropped++;
+      unreported++;
+      wake();
+      return;
+    }
+    if (extra > 0) {
+      put(t++, LINE_NUMBER, "Messages left out while the console caught up: ", unreported, null, 0);
+      unreported = 0;
+    }
+    put(t, kind, text, n, text2, n2);
+    tail.set(t + 1);
+    if (sleeping) {
+      LockSupport.unpark(writer);
+    }
+  }
+
+  private void put(long t, byte kind, String text, long n, String text2, long n2)
+  {
+    int i = (int)t & mask;
+    texts[i] = text;
+    numbers[i] = n;
+    texts2[i] = text2;
+    numbers2[i] = n2;
+    kinds[i] = kind;
+  }
+
+  private void write(byte kind, String text, long n, String text2, long n2)
+  {
+    if (kind == TEXT) {
+      out.print(text);
+    } else if (kind == LINE_NUMBER) {
+      out.print(text);
+      out.println(n);
+    } else if (kind == LINE_TEXT) {
+      out.print(text);
+      out.println(text2);
+    } else if (kind == LINE_TWO_NUMBERS) {
+      out.print(text);
+      out.print(n);
+      out.print(text2);
+      out.println(n2);
+    } else {
+      out.println(text);
+    }
+  }
+
+  // the writer thread: print whatever is waiting, flush once caught up,
+  // sleep until there is more
+  private void drain()
+  {
+    while (true) {
+      long h = head.get();
+      long t = tail.get();
+      if (h == t) {
+        out.flush();
+        flushed.set(t);
+        if (closed) {
+          return;
+        }
+        sleeping = true;
+        if (tail.get() == t && !closed) {
+          LockSupport.park(this);
+        }
+        sleeping = false;
+        continue;
+      }
+      for (; h < t; h++) {
+        int i = (int)h & mask;
+        write(kinds[i], texts[i], numbers[i], texts2[i], numbers2[i]);
+        texts[i] = null;
+        texts2[i] = null;
+        // let the game reuse slots as they are written, not a ring at a time
+        head.lazySet(h + 1);
+      }
+    }
+  }
+
+  private void wake()
+  {
+    if (sleeping) {
+      LockSupport.unpark(writer);
+    }
+  }
+
+  // wait until everything logged so far is out, e.g. before other output
+  // that must come after it
+  public void flush()
+  {
+    if (writer == null) {
+      out.flush();
+      return;
+    }
+    long t = tail.get();
+    while (flushed.get() < t && writer.isAlive()) {
+      wake();
+      LockSupport.parkNanos(50_000);
+    }
+  }
+
+  // messages of any level left out because the ring was full or the log
+  // closed
+  public long getDropped() {
+    return dropped;
+  }
+
+  // write what is left and stop the writer; the log drops anything after
+  public void close()
+  {
+    if (writer == null) {
+      out.flush();
+      return;
+    }
+    closed = true;
+    LockSupport.unpark(writer);
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,165 @@
+import java.lang.management.ManagementFactory;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// how long commands and frames take and how often the player runs into
+// things, for any number of sessions at once. Counters are LongAdders, so
+// sessions on many threads do not fight over them. Engines, sessions and
+// windows are given one with setMetrics and record nothing without it
+//
+// shared() registers it with the platform MBean server, so jconsole or any
+// JMX client sees EscapeRoom:type=Outcomes and one
+// EscapeRoom:type=Latency,name=... per kind of command, plus paint
+public class GameMetrics implements GameMetricsMBean
+{
+  static final String DOMAIN = "EscapeRoom";
+
+  private static GameMetrics shared;
+
+  private final LatencyHistogram move = new LatencyHistogram();
+  private final LatencyHistogram jump = new LatencyHistogram();
+  private final LatencyHistogram pickup = new LatencyHistogram();
+  private final LatencyHistogram spring = new LatencyHistogram();
+  private final LatencyHistogram replay = new LatencyHistogram();
+  // help, undo, new boards, invalid commands and the rest
+  private final LatencyHistogram other = new LatencyHistogram();
+  private final LatencyHistogram paint = new LatencyHistogram();
+  // histogram for each Command by ordinal, the last one for invalid commands
+  private final LatencyHistogram[] byCommand = new LatencyHistogram[Command.values().length + 1];
+
+  private final LongAdder offGrid = new LongAdder();
+  private final LongAdder hitWall = new LongAdder();
+  private final LongAdder caught = new LongAdder();
+  private final LongAdder invalid = new LongAdder();
+
+  public GameMetrics()
+  {
+    for (Command c : Command.values()) {
+      byCommand[c.ordinal()] = c.isMove() ? move : c.isJump() ? jump : c == Command.PICKUP ? pickup
+          : c == Command.SPRING ? spring : c == Command.REPLAY ? replay : other;
+    }
+    byCommand[byCommand.length - 1] = other;
+  }
+
+  // the one every game in this JVM reports to, registered with JMX the
+  // first time it is asked for
+  public static synchronized GameMetrics shared()
+  {
+    if (shared == null) {
+      shared = new GameMetrics();
+      shared.register(ManagementFactory.getPlatformMBeanServer());
+    }
+    return shared;
+  }
+
+  // a second registration under the same names, e.g. from another class
+  // loader, is left out rather than failing the game
+  public void register(MBeanServer server)
+  {
+    try {
+      server.registerMBean(this, new ObjectName(DOMAIN + ":type=Outcomes"));
+      register(server, "move", move);
+      register(server, "jump", jump);
+      register(server, "pickup", pickup);
+      register(server, "spring", spring);
+      register(server, "replay", replay);
+      register(server, "other", other);
+      register(server, "paint", paint);
+    } catch (JMException e) {
+      System.err.println("Could not register game metrics: " + e.getMessage());
+    }
+  }
+
+  private static void register(MBeanServer server, String name, LatencyHistogram h) throws JMException
+  {
+    server.registerMBean(h, new ObjectName(DOMAIN + ":type=Latency,name=" + name));
+  }
+
+  // one command, null for an invalid one, took nanos from parse to reply
+  public void commandTook(Command cmd, long nanos)
+  {
+    byCommand[cmd == null ? byCommand.length - 1 : cmd.ordinal()].record(nanos);
+  }
+
+  public void paintTook(long nanos)
+  {
+    paint.record(nanos);
+  }
+
+  public void offGrid()
+  {
+    offGrid.increment();
+  }
+
+  // a step or jump stopped by a rock, barrier or wall
+  public void hitWall()
+  {
+    hitWall.increment();
+  }
+
+  // jumped into a trap, the game is over
+  public void caught()
+  {
+    caught.increment();
+  }
+
+  public void invalidCommand()
+  {
+    invalid.increment();
+  }
+
+  public long getCommands()
+  {
+    return move.getCount() + jump.getCount() + pickup.getCount() + spring.getCount() + replay.getCount()
+        + other.getCount();
+  }
+
+  public long getOffGrid() { return offGrid.sum(); }
+  public long getHitWall() { return hitWall.sum(); }
+  public long getCaught() { return caught.sum(); }
+  public long getInvalidCommands() { return invalid.sum(); }
+
+  public LatencyHistogram getMove() { return move; }
+  public LatencyHistogram getJump() { return jump; }
+  public LatencyHistogram getPickup() { return pickup; }
+  public LatencyHistogram getSpring() { return spring; }
+  public LatencyHistogram getReplay() { return replay; }
+  public LatencyHistogram getOther() { return other; }
+  public LatencyHistogram getPaint() { return paint; }
+
+  // the histograms too
+  public void reset()
+  {
+    offGrid.reset();
+    hitWall.reset();
+    caught.reset();
+    invalid.reset();
+    move.reset();
+    jump.reset();
+    pickup.reset();
+    spring.reset();
+    replay.reset();
+    other.reset();
+    paint.reset();
+  }
+
+  public String toString()
+  {
+    StringBuilder sb = new StringBuilder();
+    sb.append("Commands ").append(getCommands()).append(": off grid ").append(getOffGrid())
+        .append(", hit wall ").append(getHitWall()).append(", caught ").append(getCaught())
+        .append(", invalid ").append(getInvalidCommands());
+    sb.append("\n  move   ").append(move);
+    sb.append("\n  jump   ").append(jump);
+    sb.append("\n  pickup ").append(pickup);
+    sb.append("\n  spring ").append(spring);
+    sb.append("\n  replay ").append(replay);
+    sb.append("\n  other  ").append(other);
+    sb.append("\n  paint  ").append(paint);
+    return sb.toString();
+  }
+}
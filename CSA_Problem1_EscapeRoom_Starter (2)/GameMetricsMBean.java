@@ -0,0 +1,15 @@
+// what JMX shows of GameMetrics: how often each outcome has happened
+public interface GameMetricsMBean
+{
+  long getCommands();
+
+  long getOffGrid();
+
+  long getHitWall();
+
+  long getCaught();
+
+  long getInvalidCommands();
+
+  void reset();
+}
@@ -0,0 +1,341 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// hosts many independent games over a line protocol on a local TCP port,
+// each connection gets its own thread, engine and GameSession
+//
+// the server greets with "Dungeon seed: N", then every line the client sends
+// is an EscapeRoom command, answered with the game's messages and a status
+// line "= score S points P steps T OUTCOME". "seed N" starts over on that
+// dungeon, "quiet" and "verbose" turn the game messages off and on. The
+// connection closes after the status line of a won or quit game
+//
+// with --journal DIR every game is written to DIR/game-N.journal for JournalReplay
+// with --saves FILE "save N" and "load N" keep games in slot N of one SaveStore
+// shared by every connection, so a game can be picked up on another one
+//
+// command times and what players ran into are published over JMX, see GameMetrics
+//
+// usage: java GameServer [--port 7777] [--size WxH] [--journal DIR] [--saves FILE [--slots N]]
+//                         [--log debug|info|player|off]
+public class GameServer
+{
+  private static final int STACK_SIZE = 256 * 1024;
+  // how long accept waits after failing, doubled each time it fails again,
+  // so running out of file descriptors does not spin a core
+  private static final long ACCEPT_RETRY_MS = 10;
+  private static final long ACCEPT_RETRY_MAX_MS = 1000;
+
+  private ServerSocket server;
+  private ExecutorService connections;
+  private int gridW;
+  private int gridH;
+  private Set<Socket> open = ConcurrentHashMap.newKeySet();
+  private AtomicInteger active = new AtomicInteger();
+  private AtomicLong sessions = new AtomicLong();
+  private AtomicLong commands = new AtomicLong();
+  // where each game's journal goes, null for none
+  private volatile Path journalDir;
+  private AtomicLong journals = new AtomicLong();
+  // slots save and load use, null when saving is off
+  private volatile SaveStore saves;
+  // what every game started from now on reports to, null for nothing
+  private volatile GameMetrics metrics;
+  // least important game messages sent to clients
+  private volatile GameLog.Level logLevel = GameLog.Level.INFO;
+  // the server's own messages, e.g. connections it could not accept
+  private volatile GameLog serverLog = GameLog.console();
+
+  // port 0 picks a free one, see getPort
+  public GameServer(int port, int gridW, int gridH) throws IOException
+  {
+    if (gridW < 1 || gridH < 1 || gridW > DungeonEngine.MAX_GRID || gridH > DungeonEngine.MAX_GRID) {
+      throw new IllegalArgumentException("grid must be between 1x1 and "
+          + DungeonEngine.MAX_GRID + "x" + DungeonEngine.MAX_GRID);
+    }
+    this.gridW = gridW;
+    this.gridH = gridH;
+    server = new ServerSocket(port, 4096, InetAddress.getLoopbackAddress());
+    connections = newConnectionExecutor();
+  }
+
+  // a virtual thread per connection where the JVM has them (21+), otherwise
+  // a platform thread with a small stack
+  static ExecutorService newConnectionExecutor()
+  {
+    try {
+      return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(null, r, "session", STACK_SIZE);
+        t.setDaemon(true);
+        return t;
+      });
+    }
+  }
+
+  // journal every game started from now on into dir, null to stop
+  public void setJournalDir(Path dir) {
+    journalDir = dir;
+  }
+
+  // let save and load use store, null to turn them off
+  public void setSaves(SaveStore store) {
+    saves = store;
+  }
+
+  // time the commands of every game started from now on, null to stop
+  public void setMetrics(GameMetrics m) {
+    metrics = m;
+  }
+
+  // for games started, or switched to verbose, from now on
+  public void setLogLevel(GameLog.Level l) {
+    logLevel = l;
+  }
+
+  // where the server reports its own trouble, the console unless set
+  public void setServerLog(GameLog l) {
+    serverLog = l;
+  }
+
+  public int getPort() {
+    return server.getLocalPort();
+  }
+
+  public int getActiveSessions() {
+    return active.get();
+  }
+
+  public long getTotalSessions() {
+    return sessions.get();
+  }
+
+  public long getTotalCommands() {
+    return commands.get();
+  }
+
+  // accept connections on a background thread until close
+  public void start()
+  {
+    Thread acceptor = new Thread(this::acceptLoop, "acceptor");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  // every connection is closed even if some fail to; the first failure is
+  // thrown once they all have been tried, the others added to it
+  public void close() throws IOException
+  {
+    IOException failed = null;
+    try {
+      server.close();
+    } catch (IOException e) {
+      failed = e;
+    }
+    for (Socket s : open) {
+      try {
+        s.close();
+      } catch (IOException e) {
+        if (failed == null) {
+          failed = e;
+        } else {
+          failed.addSuppressed(e);
+        }
+      }
+    }
+    connections.shutdownNow();
+    if (failed != null) {
+      throw failed;
+    }
+  }
+
+  private void acceptLoop()
+  {
+    long retry = ACCEPT_RETRY_MS;
+    while (!server.isClosed()) {
+      try {
+        Socket s = server.accept();
+        open.add(s);
+        connections.execute(() -> serve(s));
+        retry = ACCEPT_RETRY_MS;
+      } catch (IOException e) {
+        if (server.isClosed()) {
+          return;
+        }
+        // e.g. out of file descriptors: it will fail again straight away
+        // until some connection closes, so wait longer each time
+        serverLog.info("Could not accept a connection, trying again in " + retry + " ms: " + e.getMessage());
+        try {
+          Thread.sleep(retry);
+        } catch (InterruptedException ie) {
+          return;
+        }
+        retry = Math.min(retry * 2, ACCEPT_RETRY_MAX_MS);
+      }
+    }
+  }
+
+  private void serve(Socket socket)
+  {
+    active.incrementAndGet();
+    sessions.incrementAndGet();
+    GameSession session = null;
+    try (Socket s = socket;
+         BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+         PrintStream out = new PrintStream(new BufferedOutputStream(s.getOutputStream()), false, "UTF-8")) {
+      s.setTcpNoDelay(true);
+      boolean quiet = false;
+      session = newSession(new Random().nextLong(), out);
+      status(session, out);
+      String line;
+      while ((line = in.readLine()) != null) {
+        String command = line.trim().toLowerCase();
+        if (command.isEmpty()) {
+          continue;
+        }
+        commands.incrementAndGet();
+        if (command.startsWith("seed ")) {
+          try {
+            long seed = Long.parseLong(command.substring(5).trim());
+            endJournal(session);
+            session = newSession(seed, quiet ? null : out);
+          } catch (NumberFormatException e) {
+            out.println("Could not read seed " + command.substring(5));
+          }
+        } else if (command.equals("quiet") || command.equals("verbose")) {
+          quiet = command.equals("quiet");
+          session.setLog(quiet ? null : log(out));
+        } else if (!saveOrLoad(command, session, quiet ? null : out)) {
+          session.processCommand(command);
+        }
+        status(session, out);
+        if (!session.isPlaying()) {
+          break;
+        }
+      }
+    } catch (IOException e) {
+      // client went away
+    } finally {
+      endJournal(session);
+      open.remove(socket);
+      active.decrementAndGet();
+    }
+  }
+
+  // false if command is not save or load, or saving is off
+  private boolean saveOrLoad(String command, GameSession session, PrintStream out)
+  {
+    SaveStore store = saves;
+    String reply = store == null ? null : store.command(command, session);
+    if (reply != null && out != null) {
+      out.println(reply);
+    }
+    return reply != null;
+  }
+
+  private GameSession newSession(long seed, PrintStream out)
+  {
+    DungeonEngine engine = new DungeonEngine(gridW, gridH);
+    GameSession session = new GameSession(engine, "Gryffindor", null);
+    session.setLog(out == null ? null : log(out));
+    session.setMetrics(metrics);
+    engine.createBoard(seed);
+    if (out != null) {
+      out.println("Dungeon seed: " + seed);
+    }
+    Path dir = journalDir;
+    if (dir != null) {
+      Path file = dir.resolve("game-" + journals.incrementAndGet() + ".journal");
+      try {
+        session.setJournal(GameJournal.create(file, engine, "Gryffindor"));
+      } catch (IOException e) {
+        System.err.println("Could not write journal " + file + ": " + e.getMessage());
+      }
+    }
+    return session;
+  }
+
+  // messages go out with the reply they belong to, before its status line,
+  // so they are written straight into the connection's buffer
+  private GameLog log(PrintStream out)
+  {
+    return new GameLog(out, logLevel);
+  }
+
+  private static void endJournal(GameSession session)
+  {
+    if (session != null && session.getJournal() != null) {
+      session.getJournal().finish(session);
+    }
+  }
+
+  private static void status(GameSession session, PrintStream out)
+  {
+    out.println("= score " + session.getScore() + " points " + session.getPoints()
+        + " steps " + session.getSteps() + " " + session.getOutcome());
+    out.flush();
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    int port = 7777;
+    int gridW = DungeonEngine.GRID_W;
+    int gridH = DungeonEngine.GRID_H;
+    Path journalDir = null;
+    Path savesFile = null;
+    int slots = 10_000;
+    GameLog.Level logLevel = GameLog.Level.INFO;
+    for (int i = 0; i + 1 < args.length; i++) {
+      if (args[i].equals("--port")) {
+        port = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("--size")) {
+        String[] dims = args[++i].toLowerCase().split("x");
+        gridW = Integer.parseInt(dims[0]);
+        gridH = Integer.parseInt(dims[1]);
+      } else if (args[i].equals("--journal")) {
+        journalDir = Paths.get(args[++i]);
+      } else if (args[i].equals("--saves")) {
+        savesFile = Paths.get(args[++i]);
+      } else if (args[i].equals("--slots")) {
+        slots = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("--log")) {
+        logLevel = GameLog.level(args[++i]);
+        if (logLevel == null) {
+          throw new IllegalArgumentException("log level must be debug, info, player or off");
+        }
+      }
+    }
+    GameServer server = new GameServer(port, gridW, gridH);
+    server.setJournalDir(journalDir);
+    server.setMetrics(GameMetrics.shared());
+    server.setLogLevel(logLevel);
+    if (savesFile != null) {
+      server.setSaves(SaveStore.open(savesFile, slots));
+    }
+    server.start();
+    System.out.println("EscapeRoom server on port " + server.getPort());
+    while (true) {
+      Thread.sleep(10_000);
+      System.out.println(server.getActiveSessions() + " playing, " + server.getTotalSessions()
+          + " sessions, " + server.getTotalCommands() + " commands");
+    }
+  }
+}
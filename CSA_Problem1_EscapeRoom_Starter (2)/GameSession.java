@@ -0,0 +1,470 @@
+import java.io.PrintStream;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+
+// one player's game: the score, points and command rules EscapeRoom plays by
+// a session never exits the process, it just stops playing when the player
+// wins or quits
+public class GameSession
+{
+  private static final int SPACE_SIZE = DungeonEngine.SPACE_SIZE;
+
+  public enum Outcome { PLAYING, WON, QUIT, CAUGHT }
+
+  // most commands that can be taken back
+  static final int MAX_UNDO = 10000;
+
+  // everything a command can change, as it was at one moment; the board part
+  // shares all it can with the states before and after it, so a state costs
+  // a few dozen bytes. Bots can keep states to backtrack to with restore
+  public static final class State
+  {
+    private final BoardSnapshot board;
+    private final int steps;
+    private final boolean gameOver;
+    private final int score;
+    private final int points;
+
+    private State(BoardSnapshot board, int steps, boolean gameOver, int score, int points)
+    {
+      this.board = board;
+      this.steps = steps;
+      this.gameOver = gameOver;
+      this.score = score;
+      this.points = points;
+    }
+
+    public int getScore() {
+      return score;
+    }
+  }
+
+  private DungeonEngine engine;
+  // window showing the board, null when running headless
+  private GameGUI game;
+  private String playerHouse;
+  // where messages go, null to play silently
+  private GameLog log;
+  private int score = 0;
+  private int points = 0;
+  private boolean play = true;
+  private Outcome outcome = Outcome.PLAYING;
+  // where every command is written down, null for nowhere
+  private GameJournal journal;
+  // times each command, null for no timing
+  private GameMetrics metrics;
+  // states before each command, newest first, and states undone since
+  private ArrayDeque<State> undo = new ArrayDeque<State>();
+  private ArrayDeque<State> redo = new ArrayDeque<State>();
+
+  public GameSession(DungeonEngine engine, String playerHouse, PrintStream out)
+  {
+    this.engine = engine;
+    this.playerHouse = playerHouse;
+    setOutput(out);
+  }
+
+  public void setGame(GameGUI g)
+  {
+    game = g;
+    updateScore();
+  }
+
+  // record every command from here on into j, null to stop
+  public void setJournal(GameJournal j)
+  {
+    journal = j;
+  }
+
+  public GameJournal getJournal()
+  {
+    return journal;
+  }
+
+  // time every command from here on into m, and count what the engine runs
+  // into; null to stop
+  public void setMetrics(GameMetrics m)
+  {
+    metrics = m;
+    engine.setMetrics(m);
+  }
+
+  // messages from here on go to o, null for none
+  public void setOutput(PrintStream o)
+  {
+    setLog(o == null ? null : new GameLog(o, GameLog.Level.INFO));
+  }
+
+  // messages from here on go to l, null for none
+  public void setLog(GameLog l)
+  {
+    log = l;
+    engine.setLog(l);
+  }
+
+  public boolean isPlaying() {
+    return play;
+  }
+
+  public int getScore() {
+    return score;
+  }
+
+  public int getPoints() {
+    return points;
+  }
+
+  public int getSteps() {
+    return engine.getSteps();
+  }
+
+  public DungeonEngine getEngine() {
+    return engine;
+  }
+
+  public State getState() {
+    return new State(engine.getSnapshot(), engine.getSteps(), engine.isGameOver(), score, points);
+  }
+
+  // back (or forward) to a state from getState on the same board
+  public void restore(State s) {
+    engine.restore(s.board, s.steps, s.gameOver);
+    score = s.score;
+    points = s.points;
+    updateScore();
+  }
+
+  // the engine now holds a game SaveStore read back; take on its score and
+  // start a fresh history. The old game's journal cannot be played on into
+  // the loaded one, so it is closed, without an end since that game never had
+  // one
+  void loaded(int score, int points) {
+    this.score = score;
+    this.points = points;
+    forget();
+    if (journal != null) {
+      journal.close();
+      journal = null;
+      say("Journal closed, a loaded game is not recorded");
+    }
+    updateScore();
+  }
+
+  // caught by a trap but not yet quit or replayed counts as caught
+  public Outcome getOutcome() {
+    if (outcome == Outcome.PLAYING && engine.isGameOver()) {
+      return Outcome.CAUGHT;
+    }
+    return outcome;
+  }
+
+  private void say(String message) {
+    if (log != null) {
+      log.player(message);
+    }
+  }
+
+  // the number is only turned into text if and when it is written
+  private void say(String message, long n) {
+    if (log != null) {
+      log.player(message, n);
+    }
+  }
+
+  private void say(String message, String more) {
+    if (log != null) {
+      log.player(message, more);
+    }
+  }
+
+  private void say(String message, long n, String more, long m) {
+    if (log != null) {
+      log.player(message, n, more, m);
+    }
+  }
+
+  // for messages that have to be built before they can be said
+  private boolean saying() {
+    return log != null && log.isEnabled(GameLog.Level.PLAYER);
+  }
+
+  // command must be trimmed and lower case, ignored once the game has ended
+  public void processCommand(String command) {
+    process(Command.parse(command), command);
+  }
+
+  // an already parsed command, null plays an invalid one
+  public void process(Command cmd) {
+    process(cmd, "(unknown)");
+  }
+
+  private void process(Command cmd, String command) {
+    if (!play) {
+      return;
+    }
+    GameEvents.CommandEvent event = GameEvents.recording() ? new GameEvents.CommandEvent() : null;
+    if (event != null && !event.isEnabled()) {
+      event = null;
+    }
+    if (metrics == null && event == null) {
+      play(cmd, command);
+      return;
+    }
+    int before = score;
+    if (event != null) {
+      event.begin();
+    }
+    long start = System.nanoTime();
+    play(cmd, command);
+    if (metrics != null) {
+      metrics.commandTook(cmd, System.nanoTime() - start);
+    }
+    if (event != null) {
+      event.end();
+      event.typed = command;
+      event.command = cmd == null ? "INVALID" : cmd.name();
+      event.scoreChange = score - before;
+      event.steps = engine.getSteps();
+      event.outcome = getOutcome().name();
+      event.commit();
+    }
+  }
+
+  private void play(Command cmd, String command) {
+    if (journal != null) {
+      journal.record(cmd);
+    }
+    if (cmd == null) {
+      if (metrics != null) {
+        metrics.invalidCommand();
+      }
+      remember();
+      say("Invalid command: ", command);
+      score -= 2;
+      updateScore();
+      return;
+    }
+
+    if (engine.isGameOver()) {
+      if (cmd == Command.QUIT) {
+        say("Final score: ", score);
+        say("Final points: ", points);
+        say("Total steps: ", engine.getSteps());
+        play = false;
+        outcome = Outcome.CAUGHT;
+      } else if (cmd == Command.REPLAY) {
+        say("Player score: ", score);
+        say("Player steps: ", engine.getSteps());
+        int replayBonus = engine.replay();
+        score = 0 + replayBonus;
+        points = 0;
+        updateScore();
+        engine.resetGameOver();
+        forget();
+        say("Game reset! Starting new game...");
+      } else if (cmd == Command.NEW_BOARD) {
+        newBoard();
+      } else if (cmd == Command.UNDO) {
+        // take back the jump that ended it
+        undo();
+      } else {
+        say("GAME OVER! Snape has caught you!");
+        say("You can quit (q) or replay (replay)");
+      }
+      return;
+    }
+
+    if (cmd.isPlay()) {
+      remember();
+    }
+    switch (cmd) {
+      case RIGHT:
+      case LEFT:
+      case UP:
+      case DOWN:
+      case JUMP_RIGHT:
+      case JUMP_LEFT:
+      case JUMP_UP:
+      case JUMP_DOWN: {
+        int dx = cmd.dx * SPACE_SIZE;
+        int dy = cmd.dy * SPACE_SIZE;
+        int result = cmd.isJump() ? engine.jumpPlayer(dx, dy) : engine.movePlayer(dx, dy);
+        score += result;
+        if (result == -1000) {
+          return;
+        }
+        score++;
+        if (result == 0) {
+          points++;
+          say("Points: ", points);
+        }
+        break;
+      }
+      case PICKUP: {
+        int result = engine.pickupPrize();
+        score += result;
+
+        if (engine.getCoinsCollected() == engine.getTotalCoins()) {
+          say("-----------------------------------------------------------");
+          say("All Amortentia potion ingredients collected!");
+          say("Congratulations! You escaped Snape's dungeon!");
+          say(playerHouse, " has triumphed once again!");
+          say("Final score: ", score);
+          say("Total steps: ", engine.getSteps());
+          printPar();
+          say("-----------------------------------------------------------");
+          play = false;
+          outcome = Outcome.WON;
+        }
+        break;
+      }
+      case SPRING:
+        score += engine.springAdjacentTraps();
+        break;
+      case HELP:
+        printHelp();
+        break;
+      case REPLAY: {
+        say("Player score: ", score);
+        say("Player steps: ", engine.getSteps());
+        int replayBonus = engine.replay();
+        score = 0 + replayBonus;
+        points = 0;
+        updateScore();
+        engine.resetGameOver();
+        forget();
+        say("The dungeon has been reset! Starting new game...");
+        break;
+      }
+      case NEW_BOARD:
+        newBoard();
+        break;
+      case UNDO:
+        undo();
+        break;
+      case REDO:
+        if (redo.isEmpty()) {
+          say("Nothing to redo");
+        } else {
+          undo.push(getState());
+          restore(redo.pop());
+          say("Redone. Score: ", score, ", steps: ", engine.getSteps());
+        }
+        break;
+      case QUIT:
+        score += engine.endGame();
+        if (game != null) {
+          game.endGame();
+        }
+        say("\nYou have left Snape's dungeon.");
+        say("Final score: ", score);
+        say("Final points: ", points);
+        say("Total steps: ", engine.getSteps());
+        printPar();
+        if (saying()) {
+          say("Until we meet again, " + playerHouse + "!\n");
+        }
+        play = false;
+        outcome = Outcome.QUIT;
+        break;
+    }
+
+    updateScore();
+  }
+
+  // keep the state before a command so it can be taken back
+  private void remember() {
+    undo.push(getState());
+    if (undo.size() > MAX_UNDO) {
+      undo.removeLast();
+    }
+    redo.clear();
+  }
+
+  // states from another board, or from before a replay, cannot come back
+  private void forget() {
+    undo.clear();
+    redo.clear();
+  }
+
+  private void undo() {
+    if (undo.isEmpty()) {
+      say("Nothing to undo");
+      return;
+    }
+    redo.push(getState());
+    restore(undo.pop());
+    say("Undone. Score: ", score, ", steps: ", engine.getSteps());
+  }
+
+  // move on to another dungeon, starting from nothing
+  private void newBoard() {
+    say("Player score: ", score);
+    say("Player steps: ", engine.getSteps());
+    engine.newBoard();
+    forget();
+    score = 0;
+    points = 0;
+    updateScore();
+    say("A new dungeon! Dungeon seed: ", engine.getSeed());
+  }
+
+  // best possible result on this dungeon, to compare against: the fewest
+  // steps, and the best score in that many. The engine started solving a
+  // small board with it, a bigger one starts now; the game never waits for it
+  private void printPar() {
+    if (!saying()) {
+      return;
+    }
+    CompletableFuture<Solver.Solution> par = engine.getLayout().par();
+    if (!par.isDone()) {
+      say("Par for this dungeon is still being worked out");
+      return;
+    }
+    Solver.Solution p = par.join();
+    if (p != null) {
+      say("Par for this dungeon: ", p.steps, " steps, score ", p.score);
+    }
+  }
+
+  private void updateScore() {
+    if (game != null) {
+      game.updateScore(score);
+    }
+  }
+
+  private void printHelp() {
+    say("\n-----------------------------------------------------------");
+    say(" HOGWARTS DUNGEON ESCAPE - COMMANDS");
+    say("-----------------------------------------------------------");
+    say("\nMovement:");
+    say("  right, r    - Move right one space (gains 1 point)");
+    say("  left, l     - Move left one space (gains 1 point)");
+    say("  up, u       - Move up one space (gains 1 point)");
+    say("  down, d     - Move down one space (gains 1 point)");
+    say("\nJump (2 spaces):");
+    say("  jr, jumpright  - Jump right two spaces (gains 1 point)");
+    say("  jl, jumpleft   - Jump left two spaces (gains 1 point)");
+    say("  ju, jumpup     - Jump up two spaces (gains 1 point)");
+    say("  jd, jumpdown   - Jump down two spaces (gains 1 point)");
+    say("\nActions:");
+    say("  pickup, p   - Pick up a Amortentia Potion ingredient");
+    say("  spring, s   - Disarm a trap or barrier adjacent to you");
+    say("\nGame Rules:");
+    say("  - You gain 1 point each time you move successfully");
+    say("  - Collect all potion ingredients to escape");
+    say("  - Cannot move into Snape's traps, but jumping into one ends the game!");
+    say("  - Hidden traps show 'ANOMALY DETECTED NEARBY' when nearby");
+    say("  - Rocks can be jumped over. Barriers block jumps but can be disarmed.");
+    say("\nOther:");
+    say("  help, ?     - Show this help message");
+    say("  replay     - Reset the dungeon (shows steps)");
+    say("  newboard, new - Start over on a different dungeon");
+    say("  undo, z    - Take back the last command");
+    say("  redo, y    - Do it again after undo");
+    say("  save N, load N - Keep the game in slot N, or go back to it");
+    say("  quit, q    - End the game");
+    say("-----------------------------------------------------------\n");
+  }
+}
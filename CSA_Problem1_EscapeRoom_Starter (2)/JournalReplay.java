@@ -0,0 +1,102 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+// plays journals written with --journal again, by default silently and as
+// fast as possible, printing how each game ended and whether that is how the
+// journal says it ended. --gui shows the game in a window instead, with the
+// recorded pauses between commands divided by --speed (0 for none)
+// --repeat plays each journal that many times, to time the engine
+// usage: java JournalReplay [--gui] [--speed X] [--repeat N] FILE...
+public class JournalReplay
+{
+  public static void main(String[] args) throws Exception
+  {
+    boolean gui = false;
+    double speed = 1;
+    int repeat = 1;
+    java.util.List<String> files = new java.util.ArrayList<String>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--gui")) {
+        gui = true;
+      } else if (args[i].equals("--speed") && i + 1 < args.length) {
+        speed = Double.parseDouble(args[++i]);
+      } else if (args[i].equals("--repeat") && i + 1 < args.length) {
+        repeat = Integer.parseInt(args[++i]);
+      } else {
+        files.add(args[i]);
+      }
+    }
+    if (files.isEmpty()) {
+      System.out.println("usage: java JournalReplay [--gui] [--speed X] [--repeat N] FILE...");
+      return;
+    }
+
+    int differ = 0;
+    for (String name : files) {
+      GameJournal.Recording r;
+      try {
+        r = GameJournal.read(Paths.get(name));
+      } catch (IOException e) {
+        System.out.println("Could not read " + name + ": " + e.getMessage());
+        differ++;
+        continue;
+      }
+      String result = gui ? watch(r, speed) : replay(r, repeat);
+      System.out.println(name + ": " + result);
+      if (result.contains("DIFFERS")) {
+        differ++;
+      }
+    }
+    // the window, if any, keeps running until it is closed
+    if (!gui) {
+      System.exit(differ == 0 ? 0 : 1);
+    }
+  }
+
+  // silent and flat out, the last of repeat runs is the one checked
+  private static String replay(GameJournal.Recording r, int repeat)
+  {
+    GameSession session = null;
+    long start = System.nanoTime();
+    for (int i = 0; i < repeat; i++) {
+      session = r.newSession(null);
+      r.play(session);
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    return outcome(r, session) + String.format(" (%d commands, %.2f M commands/s)",
+        (long)r.getCount() * repeat, r.getCount() * (double)repeat / seconds / 1e6);
+  }
+
+  // in a window with the game's messages, at the recorded pace over speed
+  private static String watch(GameJournal.Recording r, double speed) throws Exception
+  {
+    GameSession session = r.newSession(System.out);
+    GameGUI[] window = new GameGUI[1];
+    try {
+      javax.swing.SwingUtilities.invokeAndWait(() ->
+          window[0] = new GameGUI(r.getHouse(), session.getEngine(), SpriteAtlas.load(), true));
+      session.setGame(window[0]);
+    } catch (java.lang.reflect.InvocationTargetException e) {
+      System.out.println("Could not open the game window, playing without it");
+    }
+    for (int i = 0; i < r.getCount(); i++) {
+      if (speed > 0) {
+        Thread.sleep((long)(r.gap(i) / speed));
+      }
+      Command cmd = r.command(i);
+      System.out.println("> " + (cmd == null ? "(invalid)" : cmd.word));
+      session.process(cmd);
+    }
+    return outcome(r, session);
+  }
+
+  private static String outcome(GameJournal.Recording r, GameSession session)
+  {
+    String wrong = r.mismatch(session);
+    String summary = BatchRunner.summary(session);
+    if (wrong != null) {
+      return summary + " DIFFERS, " + wrong;
+    }
+    return summary + (r.isFinished() ? " as recorded" : " (journal not closed)");
+  }
+}
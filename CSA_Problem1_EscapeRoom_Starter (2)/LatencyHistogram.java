@@ -0,0 +1,127 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// counts of durations in nanoseconds, laid out the way HdrHistogram does it:
+// a bucket for each power of two, split into 8, so a percentile read back is
+// never more than 12.5% above the real one however long or short the times.
+// Recording is a shift and one atomic add, from any number of threads;
+// percentiles are worked out only when read
+public class LatencyHistogram implements LatencyHistogramMBean
+{
+  private static final int SUB_BITS = 3;
+  private static final int SUB = 1 << SUB_BITS;
+  // values under SUB have a bucket each, then SUB for every power of two
+  private static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder total = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long nanos)
+  {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    counts.incrementAndGet(bucket(nanos));
+    total.add(nanos);
+    long m = max.get();
+    while (nanos > m && !max.compareAndSet(m, nanos)) {
+      m = max.get();
+    }
+  }
+
+  private static int bucket(long v)
+  {
+    if (v < SUB) {
+      return (int)v;
+    }
+    int exp = 63 - Long.numberOfLeadingZeros(v);
+    int sub = (int)(v >>> (exp - SUB_BITS)) & (SUB - 1);
+    return (exp - SUB_BITS + 1) * SUB + sub;
+  }
+
+  // largest value that falls in bucket i
+  private static long highest(int i)
+  {
+    if (i < SUB) {
+      return i;
+    }
+    int shift = i / SUB - 1;
+    return ((long)(SUB + i % SUB + 1) << shift) - 1;
+  }
+
+  public long getCount()
+  {
+    long n = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      n += counts.get(i);
+    }
+    return n;
+  }
+
+  public double getMeanMicros()
+  {
+    long n = getCount();
+    return n == 0 ? 0 : total.sum() / 1e3 / n;
+  }
+
+  public double getMaxMicros()
+  {
+    return max.get() / 1e3;
+  }
+
+  public double getP50Micros()
+  {
+    return percentile(50);
+  }
+
+  public double getP90Micros()
+  {
+    return percentile(90);
+  }
+
+  public double getP99Micros()
+  {
+    return percentile(99);
+  }
+
+  public double getP999Micros()
+  {
+    return percentile(99.9);
+  }
+
+  // time in microseconds that p percent of the recorded times are at or under
+  public double percentile(double p)
+  {
+    long n = getCount();
+    if (n == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long)Math.ceil(n * p / 100));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highest(i), max.get()) / 1e3;
+      }
+    }
+    return max.get() / 1e3;
+  }
+
+  // times recorded while this runs may be kept or lost
+  public void reset()
+  {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    total.reset();
+    max.set(0);
+  }
+
+  public String toString()
+  {
+    return String.format("n %d mean %.1f p50 %.1f p99 %.1f max %.1f us", getCount(), getMeanMicros(),
+        getP50Micros(), getP99Micros(), getMaxMicros());
+  }
+}
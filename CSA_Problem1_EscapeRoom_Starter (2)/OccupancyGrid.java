@@ -0,0 +1,86 @@
+// one byte of flags per board cell so collision checks are a single lookup
+public class OccupancyGrid
+{
+  // what is sitting on a cell
+  static final int TRAP = 1;
+  static final int PRIZE = 2;
+  static final int ROCK = 4;
+  static final int BARRIER = 8;
+  // walls run along the right or bottom edge of the cell that owns them
+  static final int WALL_RIGHT = 16;
+  static final int WALL_DOWN = 32;
+
+  private int width;
+  private int height;
+  private byte[] cells;
+
+  public OccupancyGrid(int width, int height)
+  {
+    this.width = width;
+    this.height = height;
+    cells = new byte[width * height];
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public boolean inBounds(int col, int row) {
+    return col >= 0 && col < width && row >= 0 && row < height;
+  }
+
+  // true if any of the flags are set, cells off the board are empty
+  public boolean has(int col, int row, int flags) {
+    if (!inBounds(col, row)) {
+      return false;
+    }
+    return (cells[row * width + col] & flags) != 0;
+  }
+
+  // raw flags of an in-bounds cell index (row * width + col)
+  public int flags(int cell) {
+    return cells[cell];
+  }
+
+  // replace every flag of an in-bounds cell index
+  public void setFlags(int cell, int flags) {
+    cells[cell] = (byte)flags;
+  }
+
+  public void set(int col, int row, int flags) {
+    cells[row * width + col] |= flags;
+  }
+
+  public void clear(int col, int row, int flags) {
+    cells[row * width + col] &= ~flags;
+  }
+
+  // copy of every cell's flags, row by row
+  public byte[] toArray() {
+    return cells.clone();
+  }
+
+  public void clearAll() {
+    java.util.Arrays.fill(cells, (byte)0);
+  }
+
+  // true if a neighbour above, below, left or right has any of the flags
+  public boolean nextTo(int col, int row, int flags) {
+    return has(col + 1, row, flags) || has(col - 1, row, flags)
+        || has(col, row + 1, flags) || has(col, row - 1, flags);
+  }
+
+  // a jump cannot pass over or land on a live barrier, or on a cell whose
+  // left or top edge has a wall (the wall sticks 3px into that cell)
+  public boolean jumpBlocked(int col, int row) {
+    return has(col, row, BARRIER) || wallInto(col, row);
+  }
+
+  public boolean wallInto(int col, int row) {
+    return has(col - 1, row, WALL_RIGHT) || has(col, row - 1, WALL_DOWN);
+  }
+}
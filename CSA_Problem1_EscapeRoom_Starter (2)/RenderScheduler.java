@@ -0,0 +1,146 @@
+import java.awt.Rectangle;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+// collects repaint requests from the game thread and turns them into at most
+// maxFps frames a second, so a burst of commands costs one frame instead of
+// one per command. Nothing is drawn while nothing changes. A max of 0 or
+// less passes every request straight on, as before
+public class RenderScheduler
+{
+  private final JComponent target;
+  // run on the event thread before each frame, e.g. to update labels
+  private final Runnable onFrame;
+  private final long frameNanos;
+  private final Timer timer;
+
+  // what the next frame has to draw, guarded by this
+  private Rectangle dirty;
+  private boolean all;
+  private boolean pending;
+  private long lastFrame;
+
+  private long requests;
+  private long frames;
+
+  public RenderScheduler(JComponent target, Runnable onFrame, int maxFps)
+  {
+    this.target = target;
+    this.onFrame = onFrame;
+    frameNanos = maxFps > 0 ? 1_000_000_000L / maxFps : 0;
+    timer = new Timer(0, e -> flush());
+    timer.setRepeats(false);
+  }
+
+  // part of the target needs drawing again
+  public void repaint(int x, int y, int w, int h)
+  {
+    if (frameNanos == 0) {
+      count();
+      target.repaint(x, y, w, h);
+      return;
+    }
+    synchronized (this) {
+      Rectangle r = new Rectangle(x, y, w, h);
+      dirty = dirty == null ? r : dirty.union(r);
+      schedule();
+    }
+  }
+
+  // all of the target needs drawing again
+  public void repaintAll()
+  {
+    if (frameNanos == 0) {
+      count();
+      target.repaint();
+      return;
+    }
+    synchronized (this) {
+      all = true;
+      schedule();
+    }
+  }
+
+  // something only onFrame shows has changed, like the score
+  public void update()
+  {
+    if (frameNanos == 0) {
+      count();
+      if (SwingUtilities.isEventDispatchThread()) {
+        onFrame.run();
+      } else {
+        SwingUtilities.invokeLater(onFrame);
+      }
+      return;
+    }
+    synchronized (this) {
+      schedule();
+    }
+  }
+
+  // requests made so far
+  public synchronized long getRequests()
+  {
+    return requests;
+  }
+
+  // frames actually asked of Swing
+  public synchronized long getFrames()
+  {
+    return frames;
+  }
+
+  // requests folded into a frame that was already on its way
+  public synchronized long getCoalesced()
+  {
+    return requests - frames;
+  }
+
+  public synchronized String toString()
+  {
+    return "Frames: " + frames + " for " + requests + " changes, " + (requests - frames) + " coalesced";
+  }
+
+  private synchronized void count()
+  {
+    requests++;
+    frames++;
+  }
+
+  // first request since the last frame starts the timer, the rest wait for it
+  private void schedule()
+  {
+    requests++;
+    if (pending) {
+      return;
+    }
+    pending = true;
+    long wait = lastFrame + frameNanos - System.nanoTime();
+    timer.setInitialDelay(wait > 0 ? (int) ((wait + 999_999) / 1_000_000) : 0);
+    timer.restart();
+  }
+
+  // on the event thread: hand everything collected since the last frame to Swing
+  private void flush()
+  {
+    Rectangle r;
+    boolean whole;
+    synchronized (this) {
+      r = dirty;
+      whole = all;
+      dirty = null;
+      all = false;
+      pending = false;
+      lastFrame = System.nanoTime();
+      frames++;
+    }
+    onFrame.run();
+    if (whole) {
+      target.repaint();
+    } else if (r != null) {
+      target.repaint(r.x, r.y, r.width, r.height);
+    }
+  }
+}
@@ -0,0 +1,260 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// many saved games in one memory-mapped file, one fixed-size slot each, so a
+// save is a few dozen puts into memory and a load as many gets, with nothing
+// to parse; the OS writes the pages out in its own time (force does it now)
+//
+// file: int "ESAV", int version, int slots, int mask words, then the slots
+// slot, big endian at fixed offsets:
+//    0 int IN_USE, 0 while empty or being written   4 int steps
+//    8 long seed   16 int width   20 int height
+//   24 int walls, prizes, traps, rocks and barriers asked for
+//   44 int player x   48 int player y   52 int score   56 int points
+//   60 byte game over, 3 spare
+//   64 prizes taken, then traps sprung, then barriers sprung, mask words
+//      longs each, so boards with up to 64 * mask words of each can be saved
+// the board itself is not stored: seed, size and counts make it again
+// exactly, the same way a journal does
+public class SaveStore implements AutoCloseable
+{
+  static final int MAGIC = 0x45534156;
+  static final int VERSION = 1;
+  static final int IN_USE = 0x53415645;
+  private static final int HEADER = 16;
+  private static final int MASKS = 64;
+  // slots are written under one of these, picked by slot number
+  private static final int LOCKS = 64;
+
+  private MappedByteBuffer map;
+  private int slots;
+  private int maskWords;
+  private int slotSize;
+  private Object[] locks = new Object[LOCKS];
+
+  private SaveStore(MappedByteBuffer map, int slots, int maskWords)
+  {
+    this.map = map;
+    this.slots = slots;
+    this.maskWords = maskWords;
+    slotSize = MASKS + 3 * 8 * maskWords;
+    for (int i = 0; i < LOCKS; i++) {
+      locks[i] = new Object();
+    }
+  }
+
+  // open file, or make it with this many slots for boards with up to 64 of
+  // each kind of object; an existing file keeps the slots it was made with
+  public static SaveStore open(Path file, int slots) throws IOException
+  {
+    return open(file, slots, 1);
+  }
+
+  public static SaveStore open(Path file, int slots, int maskWords) throws IOException
+  {
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      if (ch.size() >= HEADER) {
+        MappedByteBuffer head = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+        if (head.getInt(0) != MAGIC || head.getInt(4) != VERSION) {
+          throw new IOException("not a save file, or from another version");
+        }
+        slots = head.getInt(8);
+        maskWords = head.getInt(12);
+      } else if (slots < 1 || maskWords < 1) {
+        throw new IllegalArgumentException("a save file needs at least one slot and one mask word");
+      }
+      long size = HEADER + (long)slots * (MASKS + 3 * 8 * maskWords);
+      if (size > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("too many slots for one file");
+      }
+      // mapping past the end grows the file, new slots read as empty
+      MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      map.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, slots).putInt(12, maskWords);
+      return new SaveStore(map, slots, maskWords);
+    }
+  }
+
+  public int getSlots() {
+    return slots;
+  }
+
+  public boolean isUsed(int slot)
+  {
+    return map.getInt(offset(slot)) == IN_USE;
+  }
+
+  // write how the session's game stands into slot
+  public void save(int slot, GameSession session)
+  {
+    DungeonEngine engine = session.getEngine();
+    BoardSnapshot board = engine.getSnapshot();
+    long[] prizes = board.prizeBits();
+    long[] traps = board.trapBits();
+    long[] barriers = board.barrierBits();
+    if (prizes.length > maskWords || traps.length > maskWords || barriers.length > maskWords) {
+      throw new IllegalArgumentException("board has more objects than this save file can hold");
+    }
+    int at = offset(slot);
+    synchronized (locks[slot % LOCKS]) {
+      // a save cut short by a crash reads as empty, not half old, half new
+      map.putInt(at, 0);
+      map.putInt(at + 4, engine.getSteps());
+      map.putLong(at + 8, engine.getSeed());
+      map.putInt(at + 16, engine.getGridWidth());
+      map.putInt(at + 20, engine.getGridHeight());
+      map.putInt(at + 24, engine.getTotalWalls());
+      map.putInt(at + 28, engine.getTotalPrizes());
+      map.putInt(at + 32, engine.getTotalTraps());
+      map.putInt(at + 36, engine.getTotalRocks());
+      map.putInt(at + 40, engine.getTotalBarriers());
+      map.putInt(at + 44, engine.getPlayerX());
+      map.putInt(at + 48, engine.getPlayerY());
+      map.putInt(at + 52, session.getScore());
+      map.putInt(at + 56, session.getPoints());
+      map.put(at + 60, (byte)(engine.isGameOver() ? 1 : 0));
+      putMask(at + MASKS, prizes);
+      putMask(at + MASKS + 8 * maskWords, traps);
+      putMask(at + MASKS + 16 * maskWords, barriers);
+      map.putInt(at, IN_USE);
+    }
+  }
+
+  // put the game in slot into session, whose engine must be the same size;
+  // false if the slot is empty. The whole slot is read and checked first, so
+  // a slot that cannot be loaded leaves the game as it was
+  public boolean load(int slot, GameSession session)
+  {
+    DungeonEngine engine = session.getEngine();
+    int at = offset(slot);
+    synchronized (locks[slot % LOCKS]) {
+      if (map.getInt(at) != IN_USE) {
+        return false;
+      }
+      int steps = map.getInt(at + 4);
+      long seed = map.getLong(at + 8);
+      int w = map.getInt(at + 16);
+      int h = map.getInt(at + 20);
+      int walls = map.getInt(at + 24);
+      int prizes = map.getInt(at + 28);
+      int traps = map.getInt(at + 32);
+      int rocks = map.getInt(at + 36);
+      int barriers = map.getInt(at + 40);
+      int x = map.getInt(at + 44);
+      int y = map.getInt(at + 48);
+      int score = map.getInt(at + 52);
+      int points = map.getInt(at + 56);
+      boolean over = map.get(at + 60) != 0;
+      if (w != engine.getGridWidth() || h != engine.getGridHeight()) {
+        throw new IllegalArgumentException("slot " + slot + " holds a " + w + "x" + h + " dungeon");
+      }
+      int col = Math.floorDiv(x - DungeonEngine.START_LOC_X, DungeonEngine.SPACE_SIZE);
+      int row = Math.floorDiv(y - DungeonEngine.START_LOC_Y, DungeonEngine.SPACE_SIZE);
+      if ((x - DungeonEngine.START_LOC_X) % DungeonEngine.SPACE_SIZE != 0
+          || (y - DungeonEngine.START_LOC_Y) % DungeonEngine.SPACE_SIZE != 0
+          || col < 0 || col >= w || row < 0 || row >= h) {
+        throw new IllegalArgumentException("slot " + slot + " has the player off the board");
+      }
+      if (walls < 0 || prizes < 0 || traps < 0 || rocks < 0 || barriers < 0) {
+        throw new IllegalArgumentException("slot " + slot + " asks for a negative number of objects");
+      }
+      // a board never holds more than one of each object a cell, and two
+      // walls; anything past that is a bad slot, and would have the generator
+      // allocate for it
+      long cells = (long)w * h;
+      if (walls > 2 * cells || prizes > cells || traps > cells || rocks > cells || barriers > cells) {
+        throw new IllegalArgumentException("slot " + slot + " asks for more objects than a " + w + "x" + h
+            + " dungeon holds");
+      }
+      BoardLayout layout = engine.layoutFor(seed, walls, prizes, traps, rocks, barriers);
+      long[] prizeBits = getMask(at + MASKS, layout.getPrizeCells().length);
+      long[] trapBits = getMask(at + MASKS + 8 * maskWords, layout.getTrapCells().length);
+      long[] barrierBits = getMask(at + MASKS + 16 * maskWords, layout.getBarrierCells().length);
+      BoardSnapshot.check(prizeBits, layout.getPrizeCells());
+      BoardSnapshot.check(trapBits, layout.getTrapCells());
+      BoardSnapshot.check(barrierBits, layout.getBarrierCells());
+
+      engine.setWalls(walls);
+      engine.setPrizes(prizes);
+      engine.setTraps(traps);
+      engine.setRocks(rocks);
+      engine.setBarriers(barriers);
+      engine.createBoard(seed, layout);
+      engine.restore(engine.getSnapshot().withBits(prizeBits, trapBits, barrierBits, x, y), steps, over);
+      session.loaded(score, points);
+    }
+    return true;
+  }
+
+  // carry out "save N" or "load N" (slot 0 without N) as typed at the game,
+  // returning what to tell the player, or null for any other command
+  public String command(String command, GameSession session)
+  {
+    boolean save = command.equals("save") || command.startsWith("save ");
+    if (!save && !command.equals("load") && !command.startsWith("load ")) {
+      return null;
+    }
+    String arg = command.substring(4).trim();
+    int slot;
+    try {
+      slot = arg.isEmpty() ? 0 : Integer.parseInt(arg);
+    } catch (NumberFormatException e) {
+      return "Could not read slot " + arg;
+    }
+    try {
+      if (save) {
+        save(slot, session);
+        return "Saved to slot " + slot;
+      }
+      if (!load(slot, session)) {
+        return "Slot " + slot + " is empty";
+      }
+      return "Loaded slot " + slot + ". Score: " + session.getScore() + ", steps: " + session.getSteps();
+    } catch (IllegalArgumentException e) {
+      return "Could not " + (save ? "save: " : "load: ") + e.getMessage();
+    }
+  }
+
+  // write every save out to the file now
+  public void force()
+  {
+    map.force();
+  }
+
+  public void close()
+  {
+    force();
+  }
+
+  private int offset(int slot)
+  {
+    if (slot < 0 || slot >= slots) {
+      throw new IllegalArgumentException("no slot " + slot + ", there are " + slots);
+    }
+    return HEADER + slot * slotSize;
+  }
+
+  private void putMask(int at, long[] bits)
+  {
+    for (int i = 0; i < maskWords; i++) {
+      map.putLong(at + 8 * i, i < bits.length ? bits[i] : 0);
+    }
+  }
+
+  // bits for count objects; anything set past them makes withBits refuse it
+  private long[] getMask(int at, int count)
+  {
+    int words = (count + 63) / 64;
+    if (words > maskWords) {
+      throw new IllegalArgumentException("board has more objects than this save file can hold");
+    }
+    long[] bits = new long[words];
+    for (int i = 0; i < words; i++) {
+      bits[i] = map.getLong(at + 8 * i);
+    }
+    return bits;
+  }
+}
@@ -0,0 +1,113 @@
+import java.util.Random;
+
+// hands out the numbers 0..size-1 in random order, each exactly once
+// for small draws only swapped positions are remembered, so drawing k numbers
+// costs O(k) time and memory no matter how big size is; when a big share of
+// the pool will be drawn a plain array is faster
+public class ShuffledPool
+{
+  private int size;
+  private int drawn;
+  // whole pool as an array, null while using the sparse map
+  private int[] dense;
+  // open addressing map from pool position to the value moved there
+  private int[] keys = new int[16];
+  private int[] vals = new int[16];
+  private int count;
+
+  public ShuffledPool()
+  {
+    java.util.Arrays.fill(keys, -1);
+  }
+
+  // start a fresh shuffle of 0..size-1, expecting about draws numbers to be taken
+  public void reset(int size, int draws)
+  {
+    this.size = size;
+    drawn = 0;
+    if (count > 0) {
+      java.util.Arrays.fill(keys, -1);
+      count = 0;
+    }
+    if ((long)draws * 8 >= size) {
+      if (dense == null || dense.length < size) {
+        dense = new int[size];
+      }
+      for (int i = 0; i < size; i++) {
+        dense[i] = i;
+      }
+    } else {
+      dense = null;
+    }
+  }
+
+  public boolean hasNext()
+  {
+    return drawn < size;
+  }
+
+  // one step of a Fisher-Yates shuffle
+  public int next(Random rand)
+  {
+    int j = drawn + rand.nextInt(size - drawn);
+    if (dense != null) {
+      int picked = dense[j];
+      dense[j] = dense[drawn++];
+      return picked;
+    }
+    int picked = get(j);
+    if (j != drawn) {
+      put(j, get(drawn));
+    }
+    drawn++;
+    return picked;
+  }
+
+  private int get(int pos)
+  {
+    int mask = keys.length - 1;
+    for (int i = hash(pos) & mask; keys[i] != -1; i = (i + 1) & mask) {
+      if (keys[i] == pos) {
+        return vals[i];
+      }
+    }
+    return pos;
+  }
+
+  private void put(int pos, int val)
+  {
+    if ((count + 1) * 2 > keys.length) {
+      grow();
+    }
+    int mask = keys.length - 1;
+    int i = hash(pos) & mask;
+    while (keys[i] != -1 && keys[i] != pos) {
+      i = (i + 1) & mask;
+    }
+    if (keys[i] == -1) {
+      count++;
+    }
+    keys[i] = pos;
+    vals[i] = val;
+  }
+
+  private void grow()
+  {
+    int[] oldKeys = keys;
+    int[] oldVals = vals;
+    keys = new int[oldKeys.length * 2];
+    vals = new int[oldVals.length * 2];
+    java.util.Arrays.fill(keys, -1);
+    count = 0;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != -1) {
+        put(oldKeys[i], oldVals[i]);
+      }
+    }
+  }
+
+  private static int hash(int k)
+  {
+    return k * 0x9E3779B1 ^ (k >>> 16);
+  }
+}
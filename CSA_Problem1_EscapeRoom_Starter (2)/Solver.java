@@ -0,0 +1,346 @@
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// finds the fewest steps that collect every prize on a board, the best score
+// any path that short can get, and the EscapeRoom commands that do it
+// a state is the player's cell, which prizes are collected and which traps
+// and barriers are sprung, packed into one long. Picking up and springing
+// cost no steps and never hurt, so they happen as soon as they can and
+// only moves and jumps are searched, one breadth-first level at a time.
+// A big level's states are expanded across cores, but the new states are
+// added to the visited set in frontier order on one thread, so every state
+// keeps the same parent, and a board the same solution, however it ran
+public class Solver
+{
+  // right, left, down, up; moves are actions 0-3 and jumps 4-7
+  private static final int[] DX = { 1, -1, 0, 0 };
+  private static final int[] DY = { 0, 0, 1, -1 };
+  private static final String[] MOVES = { "r", "l", "d", "u", "jr", "jl", "jd", "ju" };
+  // below this many states a level is expanded on one thread
+  private static final int PARALLEL_MIN = 2048;
+
+  // where boards are solved in the background, half the cores so the game
+  // and the common pool keep the rest
+  private static ForkJoinPool background;
+  // the most states a background solve may hold, a quarter of the default
+  static final int PAR_STATES = 1 << 20;
+  // boards with at most this many states, every cell with every prize, trap
+  // and barrier either way, can never reach PAR_STATES: a level reserves at
+  // most 8 states for each one before it
+  private static final long SMALL_STATES = PAR_STATES / 8;
+
+  public static class Solution
+  {
+    public final int steps;
+    // what EscapeRoom would show for playing the commands
+    public final int score;
+    public final String[] commands;
+
+    Solution(int steps, int score, String[] commands)
+    {
+      this.steps = steps;
+      this.score = score;
+      this.commands = commands;
+    }
+  }
+
+  private int maxStates = 4_000_000;
+
+  // board being solved
+  private int width;
+  private int height;
+  private OccupancyGrid grid;
+  // per cell: prize number, or trap/barrier number in the sprung mask, or -1
+  private int[] objectIndex;
+  private int posBits;
+  private int prizeBits;
+  private long allPrizes;
+  private VisitedSet visited;
+
+  public void setMaxStates(int m)
+  {
+    maxStates = m;
+  }
+
+  // the pool BoardLayout.par solves on; levels it expands in parallel are
+  // split across this pool, not the common one
+  static synchronized ForkJoinPool background()
+  {
+    if (background == null) {
+      background = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+    return background;
+  }
+
+  // small enough to solve for every game on it without being asked
+  static boolean small(BoardLayout layout)
+  {
+    int objects = layout.getPrizeCells().length + layout.getTrapCells().length + layout.getBarrierCells().length;
+    return objects < 32 && ((long)layout.getWidth() * layout.getHeight() << objects) <= SMALL_STATES;
+  }
+
+  // null if the prizes cannot all be reached, or the search would need
+  // more than maxStates states or more than 60 bits per state
+  public Solution solve(BoardLayout layout)
+  {
+    width = layout.getWidth();
+    height = layout.getHeight();
+    grid = new OccupancyGrid(width, height);
+    layout.applyTo(grid);
+
+    int[] prizes = layout.getPrizeCells();
+    int[] traps = layout.getTrapCells();
+    int[] barriers = layout.getBarrierCells();
+    posBits = 64 - Long.numberOfLeadingZeros(Math.max(1, width * height - 1));
+    prizeBits = prizes.length;
+    if (posBits + prizeBits + traps.length + barriers.length > 60) {
+      return null;
+    }
+    allPrizes = (1L << prizeBits) - 1;
+    objectIndex = new int[width * height];
+    java.util.Arrays.fill(objectIndex, -1);
+    for (int i = 0; i < prizes.length; i++) {
+      objectIndex[prizes[i]] = i;
+    }
+    for (int i = 0; i < traps.length; i++) {
+      objectIndex[traps[i]] = i;
+    }
+    for (int i = 0; i < barriers.length; i++) {
+      objectIndex[barriers[i]] = traps.length + i;
+    }
+
+    visited = new VisitedSet(1 << 12);
+    long start = settle(0, 0, 0);
+    visited.add(start, -1);
+    if (prizesOf(start) == allPrizes) {
+      return solution(start, 0);
+    }
+
+    long[] frontier = { start };
+    int level = 0;
+    while (frontier.length > 0) {
+      level++;
+      // a level adds at most 8 states per frontier state; give up before
+      // making room for more than maxStates rather than after
+      if (visited.size() + frontier.length * 8L > maxStates) {
+        return null;
+      }
+      visited.reserve(frontier.length * 8);
+      if (frontier.length < PARALLEL_MIN) {
+        frontier = expand(frontier, 0, frontier.length);
+      } else {
+        // candidates hold a state and its parent link in turn; the set only
+        // changes once they are all in, so the filtering is read-only
+        long[] from = frontier;
+        int chunks = Math.max(1, Runtime.getRuntime().availableProcessors() * 4);
+        int chunk = (from.length + chunks - 1) / chunks;
+        long[][] parts = IntStream.range(0, chunks).parallel()
+            .mapToObj(c -> candidates(from, Math.min(from.length, c * chunk), Math.min(from.length, (c + 1) * chunk)))
+            .toArray(long[][]::new);
+        frontier = merge(parts);
+      }
+
+      long goal = -1;
+      for (long state : frontier) {
+        if (prizesOf(state) == allPrizes && better(state, goal)) {
+          goal = state;
+        }
+      }
+      if (goal >= 0) {
+        return solution(goal, level);
+      }
+    }
+    return null;
+  }
+
+  // of two states with every prize, the one with more sprung, so a higher
+  // score, then the lower one; goal is -1 for none yet
+  private boolean better(long state, long goal)
+  {
+    if (goal < 0) {
+      return true;
+    }
+    int a = Long.bitCount(sprungOf(state));
+    int b = Long.bitCount(sprungOf(goal));
+    return a > b || a == b && state < goal;
+  }
+
+  // new states reached from frontier[from..to) by one move or jump, added
+  // to the visited set as they are found
+  private long[] expand(long[] frontier, int from, int to)
+  {
+    long[] out = new long[Math.max(16, (to - from) * 2)];
+    int count = 0;
+    for (int i = from; i < to; i++) {
+      long state = frontier[i];
+      for (int action = 0; action < 8; action++) {
+        long next = act(state, action);
+        if (next >= 0 && visited.add(next, state << 3 | action)) {
+          if (count == out.length) {
+            out = java.util.Arrays.copyOf(out, count * 2);
+          }
+          out[count++] = next;
+        }
+      }
+    }
+    return java.util.Arrays.copyOf(out, count);
+  }
+
+  // states reached from frontier[from..to) that were not visited before
+  // this level, each followed by its parent link; may repeat a state
+  private long[] candidates(long[] frontier, int from, int to)
+  {
+    long[] out = new long[Math.max(16, (to - from) * 4)];
+    int count = 0;
+    for (int i = from; i < to; i++) {
+      long state = frontier[i];
+      for (int action = 0; action < 8; action++) {
+        long next = act(state, action);
+        if (next >= 0 && !visited.contains(next)) {
+          if (count == out.length) {
+            out = java.util.Arrays.copyOf(out, count * 2);
+          }
+          out[count++] = next;
+          out[count++] = state << 3 | action;
+        }
+      }
+    }
+    return java.util.Arrays.copyOf(out, count);
+  }
+
+  // add the candidates in order, the first parent found for a state wins
+  // as it would have expanding the level on one thread
+  private long[] merge(long[][] parts)
+  {
+    int total = 0;
+    for (long[] p : parts) {
+      total += p.length / 2;
+    }
+    long[] out = new long[total];
+    int count = 0;
+    for (long[] p : parts) {
+      for (int i = 0; i < p.length; i += 2) {
+        if (visited.add(p[i], p[i + 1])) {
+          out[count++] = p[i];
+        }
+      }
+    }
+    return java.util.Arrays.copyOf(out, count);
+  }
+
+  // state after a move (0-3) or jump (4-7), or -1 if it fails or ends the game
+  private long act(long state, int action)
+  {
+    int cell = posOf(state);
+    long sprung = sprungOf(state);
+    int d = action & 3;
+    int col = cell % width + DX[d];
+    int row = cell / width + DY[d];
+    if (col < 0 || col >= width || row < 0 || row >= height) {
+      return -1;
+    }
+    int mid = row * width + col;
+    if (action < 4) {
+      if ((grid.flags(mid) & OccupancyGrid.ROCK) != 0 || live(mid, OccupancyGrid.BARRIER, sprung)) {
+        return -1;
+      }
+      return settle(mid, prizesOf(state), sprung);
+    }
+
+    int col2 = col + DX[d];
+    int row2 = row + DY[d];
+    if (col2 < 0 || col2 >= width || row2 < 0 || row2 >= height) {
+      return -1;
+    }
+    int land = row2 * width + col2;
+    if (grid.wallInto(col, row) || live(mid, OccupancyGrid.BARRIER, sprung)
+        || grid.wallInto(col2, row2) || live(land, OccupancyGrid.BARRIER, sprung)
+        || live(land, OccupancyGrid.TRAP, sprung)) {
+      return -1;
+    }
+    return settle(land, prizesOf(state), sprung);
+  }
+
+  // arrive on a cell: pick up its prize and spring every trap or barrier next to it
+  private long settle(int cell, long prizes, long sprung)
+  {
+    if ((grid.flags(cell) & OccupancyGrid.PRIZE) != 0) {
+      prizes |= 1L << objectIndex[cell];
+    }
+    int col = cell % width;
+    int row = cell / width;
+    for (int d = 0; d < 4; d++) {
+      int c = col + DX[d];
+      int r = row + DY[d];
+      if (c >= 0 && c < width && r >= 0 && r < height) {
+        int n = r * width + c;
+        if ((grid.flags(n) & (OccupancyGrid.TRAP | OccupancyGrid.BARRIER)) != 0) {
+          sprung |= 1L << objectIndex[n];
+        }
+      }
+    }
+    return cell | prizes << posBits | sprung << (posBits + prizeBits);
+  }
+
+  private boolean live(int cell, int flag, long sprung)
+  {
+    return (grid.flags(cell) & flag) != 0 && (sprung & (1L << objectIndex[cell])) == 0;
+  }
+
+  private int posOf(long state)
+  {
+    return (int)(state & ((1L << posBits) - 1));
+  }
+
+  private long prizesOf(long state)
+  {
+    return (state >>> posBits) & allPrizes;
+  }
+
+  private long sprungOf(long state)
+  {
+    return state >>> (posBits + prizeBits);
+  }
+
+  // walk parent links back to the start, then replay them forward as commands
+  private Solution solution(long goal, int steps)
+  {
+    ArrayList<Long> path = new ArrayList<Long>();
+    ArrayList<Integer> actions = new ArrayList<Integer>();
+    long state = goal;
+    while (true) {
+      path.add(0, state);
+      long link = visited.get(state);
+      if (link < 0) {
+        break;
+      }
+      actions.add(0, (int)(link & 7));
+      state = link >>> 3;
+    }
+
+    ArrayList<String> commands = new ArrayList<String>();
+    // successful moves score 1, pickups 10 and every sprung trap or barrier 5
+    int score = steps;
+    long prizes = 0;
+    long sprung = 0;
+    for (int i = 0; i < path.size(); i++) {
+      if (i > 0) {
+        commands.add(MOVES[actions.get(i - 1)]);
+      }
+      // spring before picking up, the last pickup ends the game
+      long s = path.get(i);
+      if (sprungOf(s) != sprung) {
+        commands.add("s");
+        score += 5 * Long.bitCount(sprungOf(s) & ~sprung);
+      }
+      if (prizesOf(s) != prizes) {
+        commands.add("p");
+        score += 10;
+      }
+      prizes = prizesOf(s);
+      sprung = sprungOf(s);
+    }
+    return new Solution(steps, score, commands.toArray(new String[0]));
+  }
+}
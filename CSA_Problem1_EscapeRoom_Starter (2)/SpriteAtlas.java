@@ -0,0 +1,156 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+// every sprite the game draws, already scaled to the size it is drawn at and
+// packed into one small image (sprites.png) so startup decodes one file
+// instead of several large ones
+// rebuild after changing a source image: java SpriteAtlas
+public class SpriteAtlas
+{
+  static final String FILE = "sprites.png";
+
+  // sprite name, source image, drawn size; laid out left to right in this
+  // order, with the background on a row of its own below
+  private static final String[] NAMES = {
+    "Gryffindor", "Hufflepuff", "Ravenclaw", "Slytherin", "player", "potion", "rock", "barrier", "grid"
+  };
+  private static final int PLAYER = GameGUI.PLAYER_RENDER_SIZE;
+  private static final int ITEM = GameGUI.ITEM_RENDER_SIZE;
+  private static final int OBSTACLE = GameGUI.OBSTACLE_RENDER_SIZE;
+  private static final int[][] SIZES = {
+    {PLAYER, PLAYER}, {PLAYER, PLAYER}, {PLAYER, PLAYER}, {PLAYER, PLAYER}, {PLAYER, PLAYER},
+    {ITEM, ITEM}, {OBSTACLE, OBSTACLE}, {OBSTACLE, OBSTACLE},
+    // background at the size of the default 8x5 view
+    {DungeonEngine.GRID_W * DungeonEngine.SPACE_SIZE, DungeonEngine.GRID_H * DungeonEngine.SPACE_SIZE}
+  };
+
+  private BufferedImage image;
+  private int[][] at = new int[NAMES.length][];
+
+  private SpriteAtlas(BufferedImage image)
+  {
+    this.image = image;
+    int x = 0;
+    int rowHeight = 0;
+    for (int i = 0; i < NAMES.length - 1; i++) {
+      at[i] = new int[] { x, 0 };
+      x += SIZES[i][0];
+      rowHeight = Math.max(rowHeight, SIZES[i][1]);
+    }
+    at[NAMES.length - 1] = new int[] { 0, rowHeight };
+  }
+
+  // load on a background thread so decoding overlaps other startup work
+  public static CompletableFuture<SpriteAtlas> loadAsync()
+  {
+    return CompletableFuture.supplyAsync(SpriteAtlas::load);
+  }
+
+  // sprites.png, or the source images scaled now if it is missing or stale
+  public static SpriteAtlas load()
+  {
+    try {
+      BufferedImage png = ImageIO.read(new File(FILE));
+      // decoded PNGs come in whatever layout the file had, which draws slowly
+      BufferedImage img = new BufferedImage(png.getWidth(), png.getHeight(), BufferedImage.TYPE_INT_ARGB);
+      Graphics2D g = img.createGraphics();
+      g.drawImage(png, 0, 0, null);
+      g.dispose();
+      SpriteAtlas atlas = new SpriteAtlas(img);
+      if (img.getWidth() >= atlas.width() && img.getHeight() >= atlas.height()) {
+        return atlas;
+      }
+      System.err.println(FILE + " is out of date, scaling the source images");
+    } catch (Exception e) {
+      System.err.println("Could not open file " + FILE + ", scaling the source images");
+    }
+    return build();
+  }
+
+  // decode and scale every source image, several at once, missing ones are
+  // left transparent
+  public static SpriteAtlas build()
+  {
+    BufferedImage[] scaled = new BufferedImage[NAMES.length];
+    IntStream.range(0, NAMES.length).parallel().forEach(i -> {
+      String file = NAMES[i] + ".png";
+      try {
+        scaled[i] = scale(ImageIO.read(new File(file)), SIZES[i][0], SIZES[i][1]);
+      } catch (Exception e) {
+        System.err.println("Could not open file " + file);
+      }
+    });
+
+    SpriteAtlas atlas = new SpriteAtlas(null);
+    atlas.image = new BufferedImage(atlas.width(), atlas.height(), BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = atlas.image.createGraphics();
+    for (int i = 0; i < NAMES.length; i++) {
+      if (scaled[i] != null) {
+        g.drawImage(scaled[i], atlas.at[i][0], atlas.at[i][1], null);
+      }
+    }
+    g.dispose();
+    return atlas;
+  }
+
+  // named sprite at its drawn size, null if there is no such sprite
+  public BufferedImage get(String name)
+  {
+    for (int i = 0; i < NAMES.length; i++) {
+      if (NAMES[i].equals(name)) {
+        return image.getSubimage(at[i][0], at[i][1], SIZES[i][0], SIZES[i][1]);
+      }
+    }
+    return null;
+  }
+
+  private int width()
+  {
+    int row = 0;
+    for (int i = 0; i < NAMES.length - 1; i++) {
+      row += SIZES[i][0];
+    }
+    return Math.max(row, SIZES[NAMES.length - 1][0]);
+  }
+
+  private int height()
+  {
+    return at[NAMES.length - 1][1] + SIZES[NAMES.length - 1][1];
+  }
+
+  // halve with bilinear filtering until close, then one last step, which
+  // keeps detail that a single big bilinear step would skip over
+  private static BufferedImage scale(BufferedImage src, int w, int h)
+  {
+    BufferedImage img = src;
+    int cw = src.getWidth();
+    int ch = src.getHeight();
+    do {
+      cw = cw / 2 >= w ? cw / 2 : w;
+      ch = ch / 2 >= h ? ch / 2 : h;
+      BufferedImage next = new BufferedImage(cw, ch, BufferedImage.TYPE_INT_ARGB);
+      Graphics2D g = next.createGraphics();
+      g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      g.drawImage(img, 0, 0, cw, ch, null);
+      g.dispose();
+      img = next;
+    } while (cw != w || ch != h);
+    return img;
+  }
+
+  public static void main(String[] args) throws IOException
+  {
+    SpriteAtlas atlas = build();
+    ImageIO.write(atlas.image, "png", new File(FILE));
+    System.out.println("Wrote " + FILE + " (" + atlas.width() + "x" + atlas.height() + ", "
+        + new File(FILE).length() + " bytes)");
+  }
+}
@@ -0,0 +1,33 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// when each startup step finished, in ms since the game started; steps run
+// on different threads, so they are listed in the order they finished
+public class StartupMetrics
+{
+  private long start = System.nanoTime();
+  private Map<String, Long> marks = new LinkedHashMap<String, Long>();
+
+  // only the first mark of a step counts
+  public synchronized void mark(String step)
+  {
+    marks.putIfAbsent(step, System.nanoTime());
+  }
+
+  // ms from start to the step, or -1 if it has not happened
+  public synchronized double millis(String step)
+  {
+    Long at = marks.get(step);
+    return at == null ? -1 : (at - start) / 1e6;
+  }
+
+  public synchronized String toString()
+  {
+    StringBuilder sb = new StringBuilder("Startup ms:");
+    for (Map.Entry<String, Long> m : marks.entrySet()) {
+      sb.append(String.format(" %s %.1f,", m.getKey(), (m.getValue() - start) / 1e6));
+    }
+    sb.setLength(sb.length() - 1);
+    return sb.toString();
+  }
+}
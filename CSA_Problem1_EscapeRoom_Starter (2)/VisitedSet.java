@@ -0,0 +1,114 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// open addressing set of non-negative longs that many threads can add to at once
+// each key also carries one long of data, written by the thread that added it
+public class VisitedSet
+{
+  private AtomicLongArray keys;
+  private long[] data;
+  private int mask;
+  private AtomicInteger size = new AtomicInteger();
+
+  public VisitedSet(int capacity)
+  {
+    int cap = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+    keys = new AtomicLongArray(cap);
+    data = new long[cap];
+    mask = cap - 1;
+  }
+
+  // true if key was not in the set; slots hold key + 1 so 0 means empty
+  public boolean add(long key, long value)
+  {
+    long k = key + 1;
+    int i = mix(k) & mask;
+    while (true) {
+      long cur = keys.get(i);
+      if (cur == 0) {
+        if (keys.compareAndSet(i, 0, k)) {
+          data[i] = value;
+          size.incrementAndGet();
+          return true;
+        }
+        cur = keys.get(i);
+      }
+      if (cur == k) {
+        return false;
+      }
+      i = (i + 1) & mask;
+    }
+  }
+
+  // only safe while no other thread is adding
+  public boolean contains(long key)
+  {
+    long k = key + 1;
+    for (int i = mix(k) & mask; ; i = (i + 1) & mask) {
+      long cur = keys.get(i);
+      if (cur == k) {
+        return true;
+      }
+      if (cur == 0) {
+        return false;
+      }
+    }
+  }
+
+  // data stored with key, or -1 if it is not in the set
+  // only safe once every add that could touch key has finished
+  public long get(long key)
+  {
+    long k = key + 1;
+    for (int i = mix(k) & mask; ; i = (i + 1) & mask) {
+      long cur = keys.get(i);
+      if (cur == k) {
+        return data[i];
+      }
+      if (cur == 0) {
+        return -1;
+      }
+    }
+  }
+
+  public int size()
+  {
+    return size.get();
+  }
+
+  // grow so that `more` further keys keep the table at most half full
+  // must not run while other threads are adding
+  public void reserve(int more)
+  {
+    long needed = 2L * (size.get() + (long)more);
+    if (needed <= keys.length()) {
+      return;
+    }
+    AtomicLongArray oldKeys = keys;
+    long[] oldData = data;
+    int cap = keys.length();
+    while (cap < needed) {
+      cap <<= 1;
+    }
+    keys = new AtomicLongArray(cap);
+    data = new long[cap];
+    mask = cap - 1;
+    for (int i = 0; i < oldKeys.length(); i++) {
+      long k = oldKeys.get(i);
+      if (k != 0) {
+        int j = mix(k) & mask;
+        while (keys.get(j) != 0) {
+          j = (j + 1) & mask;
+        }
+        keys.set(j, k);
+        data[j] = oldData[i];
+      }
+    }
+  }
+
+  private static int mix(long k)
+  {
+    k *= 0x9E3779B97F4A7C15L;
+    return (int)(k ^ (k >>> 32));
+  }
+}
@@ -0,0 +1,44 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+// time from building the GameGUI to its first painted frame, and the heap the
+// GameGUI keeps afterwards; run in a fresh JVM so image decoding starts cold
+// usage, from the game's directory so the sprites are found:
+//   java -Djava.awt.headless=true -cp ../benchmarks/target/benchmarks.jar AssetBenchmark [house]
+public class AssetBenchmark
+{
+  public static void main(String[] args)
+  {
+    String house = args.length > 0 ? args[0] : "Gryffindor";
+    PrintStream report = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    DungeonEngine engine = new DungeonEngine();
+    engine.createBoard(1);
+    long before = usedHeap();
+
+    long start = System.nanoTime();
+    GameGUI gui = new GameGUI(house, engine, false);
+    BufferedImage frame = new BufferedImage(gui.getWidth(), gui.getHeight(), BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = frame.createGraphics();
+    gui.paintComponent(g);
+    g.dispose();
+    double firstFrameMs = (System.nanoTime() - start) / 1e6;
+
+    long retained = usedHeap() - before;
+    report.printf("%s: first frame %.1f ms, retained heap %d KB%n", house, firstFrameMs, retained / 1024);
+    // keep the GUI reachable until after the heap is measured
+    java.lang.ref.Reference.reachabilityFence(gui);
+  }
+
+  private static long usedHeap()
+  {
+    Runtime rt = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return rt.totalMemory() - rt.freeMemory();
+  }
+}
@@ -0,0 +1,78 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import java.util.Random;
+
+// plays recorded sessions through BatchRunner and reports sessions per second
+// half the scripts are solver solutions, which must finish WON with the par
+// score; the other half are random commands
+// usage: java -cp benchmarks/target/benchmarks.jar BatchBenchmark [sessions] [commands per random script]
+public class BatchBenchmark
+{
+  public static void main(String[] args) throws IOException
+  {
+    int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+    int length = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+    // record the scripts first so only playing them is timed
+    Random rand = new Random(9);
+    long[] seeds = new long[sessions];
+    String[] scripts = new String[sessions];
+    int[] par = new int[sessions];
+    DungeonEngine engine = new DungeonEngine();
+    engine.setOutput(null);
+    Solver solver = new Solver();
+    Command[] all = Command.values();
+    long commands = 0;
+    for (int i = 0; i < sessions; i++) {
+      seeds[i] = rand.nextLong();
+      StringBuilder sb = new StringBuilder();
+      Solver.Solution s = null;
+      if (i % 2 == 0) {
+        engine.createBoard(seeds[i]);
+        s = solver.solve(engine.getLayout());
+      }
+      if (s != null) {
+        par[i] = s.score;
+        for (String c : s.commands) {
+          sb.append(c).append('\n');
+        }
+        commands += s.commands.length;
+      } else {
+        par[i] = Integer.MIN_VALUE;
+        for (int j = 0; j < length; j++) {
+          // anything up to replay: not quit, and not newboard, which would
+          // mostly time board generation
+          Command c = all[rand.nextInt(Command.REPLAY.ordinal() + 1)];
+          sb.append(rand.nextBoolean() ? c.word : c.alias).append('\n');
+        }
+        commands += length;
+      }
+      scripts[i] = sb.toString();
+    }
+
+    int wrong = 0;
+    int won = 0;
+    for (int round = 0; round < 2; round++) {
+      wrong = 0;
+      won = 0;
+      long start = System.nanoTime();
+      for (int i = 0; i < sessions; i++) {
+        GameSession g = BatchRunner.run(seeds[i], DungeonEngine.GRID_W, DungeonEngine.GRID_H,
+            new BufferedReader(new StringReader(scripts[i])));
+        if (g.getOutcome() == GameSession.Outcome.WON) {
+          won++;
+        }
+        if (par[i] != Integer.MIN_VALUE && (g.getOutcome() != GameSession.Outcome.WON || g.getScore() != par[i])) {
+          wrong++;
+        }
+      }
+      long nanos = System.nanoTime() - start;
+      if (round == 1) {
+        System.out.printf("%d sessions (%d script lines): %.0f sessions/s, %.2f M lines/s, %d won, %d solver scripts off par%n",
+            sessions, commands, sessions * 1e9 / nanos, commands * 1e3 / nanos, won, wrong);
+      }
+    }
+  }
+}
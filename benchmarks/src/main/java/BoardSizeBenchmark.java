@@ -0,0 +1,119 @@
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+// reports engine heap per cell and viewport paint time as the board grows,
+// painting the whole view each frame and painting only what Swing would be
+// asked to repaint
+// usage, from the game's directory so the sprites are found:
+//   java -Djava.awt.headless=true -cp ../benchmarks/target/benchmarks.jar BoardSizeBenchmark [width height ...]
+public class BoardSizeBenchmark
+{
+  private static final int FRAMES = 2000;
+
+  // collects the regions the GUI asks to repaint instead of queueing them
+  private static class DirtyGUI extends GameGUI
+  {
+    static final long serialVersionUID = 1L;
+    Rectangle dirty;
+
+    DirtyGUI(DungeonEngine engine)
+    {
+      super("Gryffindor", engine, false);
+    }
+
+    public void repaint(long tm, int x, int y, int w, int h)
+    {
+      Rectangle r = new Rectangle(x, y, w, h);
+      dirty = dirty == null ? r : dirty.union(r);
+    }
+  }
+
+  public static void main(String[] args)
+  {
+    int[] sizes = { 8, 5, 200, 200, 2000, 2000 };
+    if (args.length >= 2) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+    // the engine prints every bump, keep the table readable
+    PrintStream report = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    report.println("grid         heap bytes    bytes/cell    paint us/frame   dirty us/frame");
+    for (int i = 0; i + 1 < sizes.length; i += 2) {
+      report.println(run(sizes[i], sizes[i + 1]));
+    }
+    System.setOut(report);
+  }
+
+  private static String run(int w, int h)
+  {
+    // keep enough boards alive that the heap delta is well above gc noise
+    long cells = (long)w * h;
+    int copies = (int)Math.max(1, 4_000_000 / cells);
+    DungeonEngine[] boards = new DungeonEngine[copies];
+    long before = usedHeap();
+    for (int i = 0; i < copies; i++) {
+      boards[i] = new DungeonEngine(w, h);
+      boards[i].createBoard();
+    }
+    long bytes = (usedHeap() - before) / copies;
+    DungeonEngine engine = boards[0];
+    boards = null;
+
+    DirtyGUI gui = new DirtyGUI(engine);
+    BufferedImage frame = new BufferedImage(gui.getWidth(), gui.getHeight(), BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = frame.createGraphics();
+    double full = time(gui, engine, g, false);
+    double dirty = time(gui, engine, g, true);
+    g.dispose();
+
+    return String.format("%-12s %-13d %-13.2f %-16.1f %.1f",
+        w + "x" + h, bytes, (double)bytes / cells, full, dirty);
+  }
+
+  // microseconds per frame, warmed up first
+  private static double time(DirtyGUI gui, DungeonEngine engine, Graphics2D g, boolean clip)
+  {
+    // walk right and down so the view scrolls while painting
+    int step = DungeonEngine.SPACE_SIZE;
+    engine.replay();
+    for (int i = 0; i < FRAMES; i++) {
+      paintOnce(gui, engine, g, step, i, clip);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < FRAMES; i++) {
+      paintOnce(gui, engine, g, step, i, clip);
+    }
+    return (System.nanoTime() - start) / 1000.0 / FRAMES;
+  }
+
+  private static void paintOnce(DirtyGUI gui, DungeonEngine engine, Graphics2D g, int step, int i, boolean clip)
+  {
+    gui.dirty = null;
+    if (engine.movePlayer(i % 2 == 0 ? step : 0, i % 2 == 0 ? 0 : step) != 0) {
+      engine.replay();
+    }
+    if (!clip) {
+      g.setClip(null);
+      gui.paintComponent(g);
+    } else if (gui.dirty != null) {
+      g.setClip(gui.dirty);
+      gui.paintComponent(g);
+    }
+  }
+
+  private static long usedHeap()
+  {
+    Runtime rt = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return rt.totalMemory() - rt.freeMemory();
+  }
+}
@@ -0,0 +1,193 @@
+import java.awt.Rectangle;
+
+import java.util.Random;
+
+// compares the old Rectangle[] scans against OccupancyGrid lookups
+// usage: java -cp benchmarks/target/benchmarks.jar CollisionBenchmark [width height ...]
+public class CollisionBenchmark
+{
+  private static final int S = 60;
+  private static final int PLAYER = 40;
+  private static final long RUN_NANOS = 300_000_000L;
+
+  private static Rectangle[] walls;
+  private static Rectangle[] traps;
+  private static Rectangle[] rocks;
+  private static Rectangle[] barriers;
+  private static OccupancyGrid grid;
+
+  public static void main(String[] args)
+  {
+    int[] sizes = { 8, 5, 200, 200, 2000, 2000 };
+    if (args.length >= 2) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+    System.out.println("grid         objects     scan ns/op    index ns/op   speedup");
+    for (int i = 0; i + 1 < sizes.length; i += 2) {
+      run(sizes[i], sizes[i + 1]);
+    }
+  }
+
+  private static void run(int w, int h)
+  {
+    // same object density as the default 8x5 board
+    int cells = w * h;
+    int nWalls = Math.max(1, cells * 12 / 40);
+    int nTraps = Math.max(1, cells * 4 / 40);
+    int nRocks = Math.max(1, cells * 3 / 40);
+    int nBarriers = Math.max(1, cells * 3 / 40);
+    build(w, h, nWalls, nTraps, nRocks, nBarriers, new Random(42));
+
+    int[] probes = new int[4096];
+    Random rand = new Random(7);
+    for (int i = 0; i < probes.length; i++) {
+      probes[i] = rand.nextInt(cells);
+    }
+
+    // both paths must agree before their speed means anything
+    for (int cell : probes) {
+      int col = cell % w;
+      int row = cell / w;
+      if (scanMove(col * S, row * S) != grid.has(col, row, OccupancyGrid.ROCK | OccupancyGrid.BARRIER)
+          || scanJump(col * S, row * S) != grid.jumpBlocked(col, row)
+          || scanTrap(col * S, row * S) != grid.has(col, row, OccupancyGrid.TRAP)) {
+        System.out.println("index disagrees with scan at " + col + "," + row);
+        return;
+      }
+    }
+
+    // warm both paths before timing
+    time(w, probes, true, 50_000_000L);
+    time(w, probes, false, 50_000_000L);
+    double scan = time(w, probes, true, RUN_NANOS);
+    double index = time(w, probes, false, RUN_NANOS);
+
+    int objects = nWalls + nTraps + nRocks + nBarriers;
+    System.out.printf("%-12s %-11d %-13.1f %-13.2f %.0fx%n",
+        w + "x" + h, objects, scan, index, scan / index);
+  }
+
+  // average ns for one move check + one jump check + one trap check
+  private static double time(int w, int[] probes, boolean scan, long budget)
+  {
+    long ops = 0;
+    int hits = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      for (int i = 0; i < 16; i++) {
+        int cell = probes[(int)(ops++ & (probes.length - 1))];
+        int col = cell % w;
+        int row = cell / w;
+        if (scan) {
+          int px = col * S;
+          int py = row * S;
+          if (scanMove(px, py)) hits++;
+          if (scanJump(px, py)) hits++;
+          if (scanTrap(px, py)) hits++;
+        } else {
+          if (grid.has(col, row, OccupancyGrid.ROCK | OccupancyGrid.BARRIER)) hits++;
+          if (grid.jumpBlocked(col, row)) hits++;
+          if (grid.has(col, row, OccupancyGrid.TRAP)) hits++;
+        }
+      }
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < budget);
+    if (hits == 42) {
+      System.out.print("");
+    }
+    return (double)elapsed / ops;
+  }
+
+  private static void build(int w, int h, int nWalls, int nTraps, int nRocks, int nBarriers, Random rand)
+  {
+    grid = new OccupancyGrid(w, h);
+    walls = new Rectangle[nWalls];
+    for (int i = 0; i < nWalls; i++) {
+      int col = rand.nextInt(w);
+      int row = rand.nextInt(h);
+      if (rand.nextBoolean()) {
+        walls[i] = new Rectangle(col * S + S - 5, row * S, 8, S);
+        grid.set(col, row, OccupancyGrid.WALL_RIGHT);
+      } else {
+        walls[i] = new Rectangle(col * S, row * S + S - 5, S, 8);
+        grid.set(col, row, OccupancyGrid.WALL_DOWN);
+      }
+    }
+    traps = place(nTraps, w, h, OccupancyGrid.TRAP, rand);
+    rocks = place(nRocks, w, h, OccupancyGrid.ROCK, rand);
+    barriers = place(nBarriers, w, h, OccupancyGrid.BARRIER, rand);
+  }
+
+  private static Rectangle[] place(int n, int w, int h, int flag, Random rand)
+  {
+    Rectangle[] out = new Rectangle[n];
+    for (int i = 0; i < n; i++) {
+      int col = rand.nextInt(w);
+      int row = rand.nextInt(h);
+      out[i] = new Rectangle(col * S, row * S, S, S);
+      grid.set(col, row, flag);
+    }
+    return out;
+  }
+
+  // the loops DungeonEngine used before the occupancy grid
+  private static boolean scanMove(int newX, int newY)
+  {
+    for (Rectangle r : rocks) {
+      if (r != null && r.getWidth() > 0) {
+        if (newX < r.getX() + r.getWidth() && newX + PLAYER > r.getX() &&
+            newY < r.getY() + r.getHeight() && newY + PLAYER > r.getY()) {
+          return true;
+        }
+      }
+    }
+    for (Rectangle r : barriers) {
+      if (r != null && r.getWidth() > 0) {
+        if (newX < r.getX() + r.getWidth() && newX + PLAYER > r.getX() &&
+            newY < r.getY() + r.getHeight() && newY + PLAYER > r.getY()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean scanJump(int posX, int posY)
+  {
+    for (Rectangle r : walls) {
+      int startX = (int)r.getX();
+      int endX = (int)r.getX() + (int)r.getWidth();
+      int startY = (int)r.getY();
+      int endY = (int)r.getY() + (int)r.getHeight();
+      if (posX < endX && posX + PLAYER > startX && posY < endY && posY + PLAYER > startY) {
+        return true;
+      }
+    }
+    for (Rectangle r : barriers) {
+      if (r != null && r.getWidth() > 0) {
+        if (posX < r.getX() + r.getWidth() && posX + PLAYER > r.getX() &&
+            posY < r.getY() + r.getHeight() && posY + PLAYER > r.getY()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean scanTrap(int posX, int posY)
+  {
+    for (Rectangle r : traps) {
+      if (r != null && r.getWidth() > 0) {
+        if (posX < r.getX() + r.getWidth() && posX + PLAYER > r.getX() &&
+            posY < r.getY() + r.getHeight() && posY + PLAYER > r.getY()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
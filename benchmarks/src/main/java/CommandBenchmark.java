@@ -0,0 +1,152 @@
+import java.lang.management.ManagementFactory;
+
+import java.util.Random;
+
+// parses and dispatches a script of a million commands the old way (a new
+// String[] of valid commands per call, a linear scan, then an equals chain)
+// and through Command.parse, reporting time and bytes allocated per command
+// usage: java -cp benchmarks/target/benchmarks.jar CommandBenchmark [commands]
+public class CommandBenchmark
+{
+  private static final int ROUNDS = 10;
+  private static final String[] INVALID = { "jump", "rr", "north", "x", "" };
+
+  public static void main(String[] args)
+  {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    String[] script = script(count, new Random(8));
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    long id = Thread.currentThread().getId();
+
+    // warm up both, which also caches every script line's hash
+    long check = 0;
+    for (int i = 0; i < 3; i++) {
+      check += runOld(script) - runNew(script);
+    }
+    if (check != 0) {
+      System.out.println("old and new dispatch disagree");
+    }
+
+    long oldNanos = 0;
+    long oldBytes = 0;
+    long newNanos = 0;
+    long newBytes = 0;
+    for (int i = 0; i < ROUNDS; i++) {
+      long bytes = threads.getThreadAllocatedBytes(id);
+      long start = System.nanoTime();
+      check += runOld(script);
+      oldNanos += System.nanoTime() - start;
+      oldBytes += threads.getThreadAllocatedBytes(id) - bytes;
+
+      bytes = threads.getThreadAllocatedBytes(id);
+      start = System.nanoTime();
+      check -= runNew(script);
+      newNanos += System.nanoTime() - start;
+      newBytes += threads.getThreadAllocatedBytes(id) - bytes;
+    }
+    long total = (long)count * ROUNDS;
+    System.out.printf("%d commands x %d rounds%n", count, ROUNDS);
+    System.out.printf("old chain:   %7.2f ns/cmd  %6.2f bytes/cmd  %6.2f M cmds/s%n",
+        (double)oldNanos / total, (double)oldBytes / total, total * 1e3 / oldNanos);
+    System.out.printf("Command:     %7.2f ns/cmd  %6.2f bytes/cmd  %6.2f M cmds/s%n",
+        (double)newNanos / total, (double)newBytes / total, total * 1e3 / newNanos);
+    if (check != 0) {
+      System.out.println("old and new dispatch disagree");
+    }
+  }
+
+  // every spelling of every command, with one line in twenty invalid
+  private static String[] script(int count, Random rand)
+  {
+    Command[] all = Command.values();
+    String[] script = new String[count];
+    for (int i = 0; i < count; i++) {
+      String s;
+      if (rand.nextInt(20) == 0) {
+        s = INVALID[rand.nextInt(INVALID.length)];
+      } else {
+        Command c = all[rand.nextInt(all.length)];
+        s = rand.nextBoolean() ? c.word : c.alias;
+      }
+      // a fresh string per line, like Scanner.nextLine
+      script[i] = new String(s.toCharArray());
+    }
+    return script;
+  }
+
+  // checksum of the action taken for each line, so neither loop is optimised away
+  private static long runNew(String[] script)
+  {
+    long sum = 0;
+    for (String line : script) {
+      Command cmd = Command.parse(line);
+      if (cmd == null) {
+        sum += 31;
+        continue;
+      }
+      switch (cmd) {
+        case RIGHT: case LEFT: case UP: case DOWN:
+        case JUMP_RIGHT: case JUMP_LEFT: case JUMP_UP: case JUMP_DOWN:
+          sum += (cmd.isJump() ? 7 : 3) * (cmd.dx * 5 + cmd.dy);
+          break;
+        case PICKUP: sum += 11; break;
+        case SPRING: sum += 13; break;
+        case HELP: sum += 17; break;
+        case REPLAY: sum += 19; break;
+        // the old chain had no such commands
+        case NEW_BOARD: case UNDO: case REDO: sum += 31; break;
+        case QUIT: sum += 23; break;
+      }
+    }
+    return sum;
+  }
+
+  // the checks EscapeRoom.processCommand used to make
+  private static long runOld(String[] script)
+  {
+    long sum = 0;
+    for (String command : script) {
+      String[] validCommands = { "right", "left", "up", "down", "r", "l", "u", "d",
+          "jr", "jl", "ju", "jd", "jumpright", "jumpleft", "jumpup", "jumpdown",
+          "pickup", "p", "quit", "q", "replay", "help", "?", "spring", "s"};
+      boolean isValid = false;
+      for (String valid : validCommands) {
+        if (command.equals(valid)) {
+          isValid = true;
+          break;
+        }
+      }
+      if (!isValid) {
+        sum += 31;
+      } else if (command.equals("right") || command.equals("r")) {
+        sum += 3 * 5;
+      } else if (command.equals("left") || command.equals("l")) {
+        sum += 3 * -5;
+      } else if (command.equals("up") || command.equals("u")) {
+        sum += 3 * -1;
+      } else if (command.equals("down") || command.equals("d")) {
+        sum += 3 * 1;
+      } else if (command.equals("jr") || command.equals("jumpright")) {
+        sum += 7 * 10;
+      } else if (command.equals("jl") || command.equals("jumpleft")) {
+        sum += 7 * -10;
+      } else if (command.equals("ju") || command.equals("jumpup")) {
+        sum += 7 * -2;
+      } else if (command.equals("jd") || command.equals("jumpdown")) {
+        sum += 7 * 2;
+      } else if (command.equals("pickup") || command.equals("p")) {
+        sum += 11;
+      } else if (command.equals("spring") || command.equals("s")) {
+        sum += 13;
+      } else if (command.equals("help") || command.equals("?")) {
+        sum += 17;
+      } else if (command.equals("replay")) {
+        sum += 19;
+      } else if (command.equals("quit") || command.equals("q")) {
+        sum += 23;
+      }
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,117 @@
+import java.util.Random;
+
+// heap a DungeonEngine keeps per board and how fast it plays commands and
+// replays; uses only the engine's public methods so the same file can be run
+// against older versions of it
+// density is the share of cells asked to hold a trap, prize, rock or barrier
+// usage: java -cp benchmarks/target/benchmarks.jar EntityBenchmark
+public class EntityBenchmark
+{
+  private static final long RUN_NANOS = 300_000_000L;
+
+  public static void main(String[] args)
+  {
+    System.out.println("grid         density   bytes/board   commands/s    replays/s");
+    run(8, 5, 0, 20000);
+    run(200, 200, 0.05, 200);
+    run(200, 200, 0.25, 200);
+  }
+
+  private static void run(int w, int h, double density, int boards)
+  {
+    DungeonEngine[] engines = new DungeonEngine[boards];
+    long before = usedHeap();
+    for (int i = 0; i < boards; i++) {
+      engines[i] = newEngine(w, h, density);
+      engines[i].createBoard(i);
+    }
+    long perBoard = (usedHeap() - before) / boards;
+
+    DungeonEngine engine = engines[0];
+    double commands = commands(engine, RUN_NANOS / 3);
+    commands = commands(engine, RUN_NANOS);
+    double replays = replays(engine, RUN_NANOS / 3);
+    replays = replays(engine, RUN_NANOS);
+    System.out.printf("%-12s %-9.2f %-13d %-13.0f %.0f%n",
+        w + "x" + h, density, perBoard, commands, replays);
+    java.lang.ref.Reference.reachabilityFence(engines);
+  }
+
+  // the default object counts when density is 0
+  private static DungeonEngine newEngine(int w, int h, double density)
+  {
+    DungeonEngine engine = new DungeonEngine(w, h);
+    engine.setOutput(null);
+    // every board is its own, not shared through the cache
+    engine.setBoardCache(null);
+    if (density > 0) {
+      int objects = (int)(w * h * density);
+      engine.setTraps(objects * 4 / 13);
+      engine.setPrizes(objects * 3 / 13);
+      engine.setRocks(objects * 3 / 13);
+      engine.setBarriers(objects * 3 / 13);
+      engine.setWalls(objects * 12 / 13);
+    }
+    return engine;
+  }
+
+  // random moves, jumps, pickups and springs, replaying when caught
+  private static double commands(DungeonEngine engine, long budget)
+  {
+    Random rand = new Random(3);
+    int S = DungeonEngine.SPACE_SIZE;
+    long ops = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      for (int i = 0; i < 64; i++) {
+        switch (rand.nextInt(8)) {
+          case 0: engine.movePlayer(S, 0); break;
+          case 1: engine.movePlayer(-S, 0); break;
+          case 2: engine.movePlayer(0, S); break;
+          case 3: engine.movePlayer(0, -S); break;
+          case 4: engine.jumpPlayer(2 * S, 0); break;
+          case 5: engine.jumpPlayer(0, 2 * S); break;
+          case 6: engine.pickupPrize(); break;
+          default: engine.springAdjacentTraps();
+        }
+        if (engine.isGameOver()) {
+          engine.replay();
+        }
+      }
+      ops += 64;
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < budget);
+    return ops / (elapsed / 1e9);
+  }
+
+  // a short walk with pickups and springs, then a replay to undo it
+  private static double replays(DungeonEngine engine, long budget)
+  {
+    int S = DungeonEngine.SPACE_SIZE;
+    long ops = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      for (int i = 0; i < 4; i++) {
+        engine.springAdjacentTraps();
+        engine.pickupPrize();
+        engine.movePlayer(S, 0);
+        engine.movePlayer(0, S);
+      }
+      engine.replay();
+      ops++;
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < budget);
+    return ops / (elapsed / 1e9);
+  }
+
+  private static long usedHeap()
+  {
+    Runtime rt = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return rt.totalMemory() - rt.freeMemory();
+  }
+}
@@ -0,0 +1,89 @@
+// times DungeonEngine.createBoard as boards get bigger and more crowded
+// density is the share of cells asked to hold a trap, prize, rock or barrier
+// usage: java -cp benchmarks/target/benchmarks.jar PlacementBenchmark
+public class PlacementBenchmark
+{
+  private static final long RUN_NANOS = 300_000_000L;
+
+  public static void main(String[] args)
+  {
+    int[][] sizes = { {8, 5}, {200, 200}, {2000, 2000} };
+    double[] densities = { 0.05, 0.25, 0.50, 0.75, 0.95 };
+    System.out.println("grid         density   asked      placed     createBoard ms   overlaps");
+    for (int[] size : sizes) {
+      for (double d : densities) {
+        run(size[0], size[1], d);
+      }
+    }
+  }
+
+  private static void run(int w, int h, double density)
+  {
+    int cells = w * h;
+    // split objects in the same 4:3:3:3 ratio as the default board
+    int objects = Math.max(4, (int)(cells * density));
+    int traps = objects * 4 / 13;
+    int prizes = objects * 3 / 13;
+    int rocks = objects * 3 / 13;
+    int barriers = objects - traps - prizes - rocks;
+    int walls = objects * 12 / 13;
+
+    DungeonEngine engine = new DungeonEngine(w, h);
+    // every board must really be generated
+    engine.setBoardCache(null);
+    engine.setTraps(traps);
+    engine.setPrizes(prizes);
+    engine.setRocks(rocks);
+    engine.setBarriers(barriers);
+    engine.setWalls(walls);
+
+    // warm up, then time as many boards as fit in the budget
+    long warm = System.nanoTime();
+    while (System.nanoTime() - warm < RUN_NANOS / 3) {
+      engine.createBoard();
+    }
+    int boards = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      engine.createBoard();
+      boards++;
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < RUN_NANOS);
+
+    BoardLayout layout = engine.getLayout();
+    int placed = layout.getTrapCells().length + layout.getPrizeCells().length
+        + layout.getRockCells().length + layout.getBarrierCells().length;
+    System.out.printf("%-12s %-9.2f %-10d %-10d %-16.3f %d%n",
+        w + "x" + h, density, traps + prizes + rocks + barriers, placed,
+        elapsed / 1e6 / boards, overlaps(engine, placed));
+  }
+
+  // cells holding more than one object, or solids breaking the placement rules
+  private static int overlaps(DungeonEngine engine, int placed)
+  {
+    OccupancyGrid grid = engine.getGrid();
+    int objects = OccupancyGrid.TRAP | OccupancyGrid.PRIZE | OccupancyGrid.ROCK | OccupancyGrid.BARRIER;
+    int solid = OccupancyGrid.ROCK | OccupancyGrid.BARRIER;
+    int bad = 0;
+    int seen = 0;
+    for (int row = 0; row < grid.getHeight(); row++) {
+      for (int col = 0; col < grid.getWidth(); col++) {
+        int count = 0;
+        for (int flag = 1; flag <= OccupancyGrid.BARRIER; flag <<= 1) {
+          if (grid.has(col, row, flag & objects)) {
+            count++;
+          }
+        }
+        seen += count;
+        if (count > 1) {
+          bad++;
+        }
+        if (grid.has(col, row, solid) && (grid.nextTo(col, row, solid) || (col == 0 && row == 0))) {
+          bad++;
+        }
+      }
+    }
+    return bad + Math.abs(seen - placed);
+  }
+}
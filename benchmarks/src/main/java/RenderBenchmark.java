@@ -0,0 +1,90 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// plays random commands as fast as possible with a board that really paints
+// every frame Swing is asked for, once drawing every change (fps 0) and once
+// capped, and reports commands per second and frames painted
+// usage, from the game's directory so the sprites are found:
+//   java -Djava.awt.headless=true -cp ../benchmarks/target/benchmarks.jar RenderBenchmark [commands] [fps...]
+public class RenderBenchmark
+{
+  // windowless GameGUI that paints each repaint into an image straight away,
+  // standing in for the work Swing would do on screen
+  private static class PaintingGUI extends GameGUI
+  {
+    static final long serialVersionUID = 1L;
+    private BufferedImage frame;
+    long painted;
+
+    PaintingGUI(DungeonEngine engine)
+    {
+      super("Gryffindor", engine, false);
+      frame = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+    }
+
+    public void repaint(long tm, int x, int y, int w, int h)
+    {
+      Graphics2D g = frame.createGraphics();
+      g.setClip(x, y, w, h);
+      paintComponent(g);
+      g.dispose();
+      painted++;
+    }
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    int commands = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int[] rates = { 0, GameGUI.MAX_FPS, 30 };
+    if (args.length > 1) {
+      rates = new int[args.length - 1];
+      for (int i = 1; i < args.length; i++) {
+        rates[i - 1] = Integer.parseInt(args[i]);
+      }
+    }
+    System.out.printf("%-8s %-12s %-10s %s%n", "fps", "commands/s", "painted", "coalesced");
+    for (int round = 0; round < 2; round++) {
+      for (int fps : rates) {
+        String line = run(commands, fps);
+        // first round warms up
+        if (round == 1) {
+          System.out.println(line);
+        }
+      }
+    }
+    System.exit(0);
+  }
+
+  private static String run(int commands, int fps) throws Exception
+  {
+    DungeonEngine engine = new DungeonEngine(40, 30);
+    engine.createBoard(1);
+    PaintingGUI gui = new PaintingGUI(engine);
+    gui.setMaxFps(fps);
+    // moves, jumps, pickup and spring
+    Command[] plays = Arrays.stream(Command.values()).filter(Command::isPlay).toArray(Command[]::new);
+    Random rand = new Random(5);
+    GameSession session = new GameSession(engine, "Gryffindor", null);
+    session.setGame(gui);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < commands; i++) {
+      if (!session.isPlaying() || engine.isGameOver()) {
+        engine.replay();
+        session = new GameSession(engine, "Gryffindor", null);
+        session.setGame(gui);
+      }
+      session.processCommand(plays[rand.nextInt(plays.length)].alias);
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    // let the last frame go out before counting
+    Thread.sleep(fps > 0 ? 2000 / fps + 50 : 0);
+    javax.swing.SwingUtilities.invokeAndWait(() -> { });
+
+    RenderScheduler s = gui.getRenderScheduler();
+    return String.format("%-8d %-12.0f %-10d %d", fps, commands / seconds, gui.painted, s.getCoalesced());
+  }
+}
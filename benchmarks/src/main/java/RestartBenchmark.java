@@ -0,0 +1,74 @@
+import java.lang.management.ManagementFactory;
+
+// time and bytes allocated to start over: replay (the same board) and
+// newBoard (another board of the same size), after a few moves each time
+// usage: java -cp benchmarks/target/benchmarks.jar RestartBenchmark [width height ...]
+public class RestartBenchmark
+{
+  private static final long RUN_NANOS = 300_000_000L;
+
+  public static void main(String[] args)
+  {
+    int[] sizes = { 8, 5, 200, 200, 2000, 2000 };
+    if (args.length >= 2) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+    System.out.println("grid         replay us   bytes      newBoard us  bytes");
+    for (int i = 0; i + 1 < sizes.length; i += 2) {
+      run(sizes[i], sizes[i + 1]);
+    }
+  }
+
+  private static void run(int w, int h)
+  {
+    DungeonEngine engine = new DungeonEngine(w, h);
+    engine.setOutput(null);
+    // every new board is really generated
+    engine.setBoardCache(null);
+    engine.createBoard(1);
+
+    // warm up, then time
+    time(engine, false, RUN_NANOS / 3);
+    time(engine, true, RUN_NANOS / 3);
+    double[] replay = time(engine, false, RUN_NANOS);
+    double[] fresh = time(engine, true, RUN_NANOS);
+    System.out.printf("%-12s %-11.2f %-10.0f %-12.2f %.0f%n",
+        w + "x" + h, replay[0], replay[1], fresh[0], fresh[1]);
+  }
+
+  // us and bytes per restart, not counting the moves before it
+  private static double[] time(DungeonEngine engine, boolean newBoard, long budget)
+  {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    long id = Thread.currentThread().getId();
+    int S = DungeonEngine.SPACE_SIZE;
+    long restarts = 0;
+    long nanos = 0;
+    long bytes = 0;
+    long start = System.nanoTime();
+    while (System.nanoTime() - start < budget) {
+      engine.springAdjacentTraps();
+      engine.pickupPrize();
+      engine.movePlayer(S, 0);
+      engine.movePlayer(0, S);
+      engine.springAdjacentTraps();
+      engine.pickupPrize();
+
+      long b = threads.getThreadAllocatedBytes(id);
+      long t = System.nanoTime();
+      if (newBoard) {
+        engine.newBoard();
+      } else {
+        engine.replay();
+      }
+      nanos += System.nanoTime() - t;
+      bytes += threads.getThreadAllocatedBytes(id) - b;
+      restarts++;
+    }
+    return new double[] { nanos / 1e3 / restarts, (double)bytes / restarts };
+  }
+}
@@ -0,0 +1,80 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+// plays many short random games, saves every one into its own slot of a
+// SaveStore, then loads each into a fresh engine and session as a server
+// resuming it would; every loaded game must be exactly the one saved.
+// Reports saves and loads a second and the size of the file
+// usage: java -cp benchmarks/target/benchmarks.jar SaveBenchmark [games] [width height]
+public class SaveBenchmark
+{
+  public static void main(String[] args) throws Exception
+  {
+    int games = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+    int w = args.length > 2 ? Integer.parseInt(args[1]) : DungeonEngine.GRID_W;
+    int h = args.length > 2 ? Integer.parseInt(args[2]) : DungeonEngine.GRID_H;
+    Command[] plays = Arrays.stream(Command.values()).filter(Command::isPlay).toArray(Command[]::new);
+    Random rand = new Random(6);
+
+    GameSession[] sessions = new GameSession[games];
+    String[] states = new String[games];
+    for (int i = 0; i < games; i++) {
+      DungeonEngine engine = new DungeonEngine(w, h);
+      sessions[i] = new GameSession(engine, "Gryffindor", null);
+      engine.createBoard(i);
+      for (int c = 0; c < 30 && sessions[i].isPlaying(); c++) {
+        sessions[i].process(rand.nextInt(20) == 0 ? null : plays[rand.nextInt(plays.length)]);
+      }
+      states[i] = state(sessions[i]);
+    }
+
+    Path file = Files.createTempFile("saves", ".bin");
+    try (SaveStore store = SaveStore.open(file, games)) {
+      // warm up on the first slots, then time all of them
+      for (int i = 0; i < Math.min(games, 1000); i++) {
+        store.save(i, sessions[i]);
+      }
+      long start = System.nanoTime();
+      for (int i = 0; i < games; i++) {
+        store.save(i, sessions[i]);
+      }
+      long saveNanos = System.nanoTime() - start;
+      start = System.nanoTime();
+      store.force();
+      long forceNanos = System.nanoTime() - start;
+
+      int wrong = 0;
+      start = System.nanoTime();
+      for (int i = 0; i < games; i++) {
+        GameSession loaded = new GameSession(new DungeonEngine(w, h), "Gryffindor", null);
+        store.load(i, loaded);
+        if (!state(loaded).equals(states[i])) {
+          wrong++;
+        }
+      }
+      long loadNanos = System.nanoTime() - start;
+
+      System.out.printf("%d games on %dx%d, file %d bytes (%d a slot)%n",
+          games, w, h, Files.size(file), (Files.size(file) - 16) / games);
+      System.out.printf("save %.0f/s, force %.2f ms, load into a new session %.0f/s%n",
+          games / (saveNanos / 1e9), forceNanos / 1e6, games / (loadNanos / 1e9));
+      if (wrong > 0) {
+        System.out.println(wrong + " loaded games differ from the game saved");
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  // everything a player could see or be scored on
+  private static String state(GameSession session)
+  {
+    DungeonEngine e = session.getEngine();
+    return e.getSeed() + " " + Arrays.hashCode(e.getGrid().toArray()) + " " + e.getPlayerX() + ","
+        + e.getPlayerY() + " steps " + e.getSteps() + " score " + session.getScore()
+        + " points " + session.getPoints() + " over " + e.isGameOver() + " coins " + e.getCoinsCollected()
+        + " left " + e.getPrizesLeft() + " " + e.getTrapsLeft() + " " + e.getBarriersLeft();
+  }
+}
@@ -0,0 +1,131 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// opens many sessions on a running GameServer, keeps them all connected, and
+// plays random commands on them from a few client threads, reporting
+// commands per second and round trip latency
+// run the server in its own JVM so the two don't share one file limit:
+//   java GameServer --port 7777 &
+//   java -cp benchmarks/target/benchmarks.jar ServerLoadTest [port] [sessions] [commands per session] [client threads]
+public class ServerLoadTest
+{
+  private static final Command[] PLAY = {
+    Command.RIGHT, Command.LEFT, Command.UP, Command.DOWN,
+    Command.JUMP_RIGHT, Command.JUMP_LEFT, Command.JUMP_UP, Command.JUMP_DOWN,
+    Command.PICKUP, Command.SPRING
+  };
+
+  private static class Client
+  {
+    Socket socket;
+    BufferedReader in;
+    OutputStream out;
+    boolean playing = true;
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+    int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    int commands = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+    int threads = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+
+    Client[] clients = new Client[sessions];
+    long start = System.nanoTime();
+    for (int i = 0; i < sessions; i++) {
+      Client c = new Client();
+      c.socket = new Socket("127.0.0.1", port);
+      c.socket.setTcpNoDelay(true);
+      c.in = new BufferedReader(new InputStreamReader(c.socket.getInputStream(), StandardCharsets.UTF_8), 1024);
+      c.out = c.socket.getOutputStream();
+      readStatus(c);
+      clients[i] = c;
+    }
+    double connectMs = (System.nanoTime() - start) / 1e6;
+
+    long[][] latencies = new long[threads][];
+    int[] sent = new int[threads];
+    Thread[] workers = new Thread[threads];
+    start = System.nanoTime();
+    for (int t = 0; t < threads; t++) {
+      int id = t;
+      workers[t] = new Thread(() -> {
+        Random rand = new Random(id);
+        long[] lat = new long[(sessions / threads + 1) * commands];
+        int n = 0;
+        try {
+          for (int round = 0; round < commands; round++) {
+            for (int i = id; i < sessions; i += threads) {
+              Client c = clients[i];
+              if (!c.playing) {
+                continue;
+              }
+              Command cmd = PLAY[rand.nextInt(PLAY.length)];
+              long t0 = System.nanoTime();
+              c.out.write((cmd.alias + "\n").getBytes(StandardCharsets.UTF_8));
+              String status = readStatus(c);
+              lat[n++] = System.nanoTime() - t0;
+              c.playing = status.endsWith("PLAYING") || status.endsWith("CAUGHT");
+            }
+          }
+        } catch (IOException e) {
+          System.out.println("client " + id + ": " + e);
+        }
+        latencies[id] = Arrays.copyOf(lat, n);
+        sent[id] = n;
+      });
+      workers[t].start();
+    }
+    for (Thread w : workers) {
+      w.join();
+    }
+    long nanos = System.nanoTime() - start;
+
+    int total = 0;
+    for (int n : sent) {
+      total += n;
+    }
+    long[] all = new long[total];
+    int at = 0;
+    for (long[] lat : latencies) {
+      System.arraycopy(lat, 0, all, at, lat.length);
+      at += lat.length;
+    }
+    Arrays.sort(all);
+    System.out.printf("%d sessions open (connected in %.0f ms), %d client threads%n", sessions, connectMs, threads);
+    System.out.printf("%d commands in %.2f s: %.0f commands/s%n", total, nanos / 1e9, total * 1e9 / nanos);
+    System.out.printf("round trip us: p50 %.0f  p90 %.0f  p99 %.0f  max %.0f%n",
+        pct(all, 0.50), pct(all, 0.90), pct(all, 0.99), all.length == 0 ? 0 : all[all.length - 1] / 1e3);
+
+    for (Client c : clients) {
+      c.socket.close();
+    }
+  }
+
+  // skip game messages up to the status line that ends every reply
+  private static String readStatus(Client c) throws IOException
+  {
+    String line;
+    while ((line = c.in.readLine()) != null) {
+      if (line.startsWith("= ")) {
+        return line;
+      }
+    }
+    throw new IOException("server closed the session");
+  }
+
+  private static double pct(long[] sorted, double p)
+  {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    return sorted[Math.min(sorted.length - 1, (int)(sorted.length * p))] / 1e3;
+  }
+}
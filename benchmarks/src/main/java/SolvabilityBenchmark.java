@@ -0,0 +1,54 @@
+import java.util.Random;
+
+// times the start-cell distance field and counts how often boards need repair
+// usage: java -cp benchmarks/target/benchmarks.jar SolvabilityBenchmark
+public class SolvabilityBenchmark
+{
+  public static void main(String[] args)
+  {
+    int[][] sizes = { {8, 5}, {500, 500}, {2000, 2000} };
+    System.out.println("grid         objects    BFS ms");
+    for (int[] size : sizes) {
+      timeField(size[0], size[1]);
+    }
+
+    // default 8x5 boards, how many needed a rock removed
+    int boards = 100_000;
+    int repaired = 0;
+    int rocks = 0;
+    OccupancyGrid grid = new OccupancyGrid(8, 5);
+    BoardGenerator generator = new BoardGenerator();
+    Random seeds = new Random(1);
+    for (int i = 0; i < boards; i++) {
+      grid.clearAll();
+      generator.generate(grid, seeds.nextLong(), 4, 3, 12, 3, 3);
+      if (generator.getRocksRemoved() > 0) {
+        repaired++;
+        rocks += generator.getRocksRemoved();
+      }
+    }
+    System.out.printf("%d default boards: %d repaired (%.3f%%), %d rocks removed%n",
+        boards, repaired, 100.0 * repaired / boards, rocks);
+  }
+
+  private static void timeField(int w, int h)
+  {
+    // default 8x5 object density
+    int cells = w * h;
+    OccupancyGrid grid = new OccupancyGrid(w, h);
+    new BoardGenerator().generate(grid, 7, cells * 4 / 40, cells * 3 / 40, cells * 12 / 40,
+        cells * 3 / 40, cells * 3 / 40);
+
+    DistanceField field = new DistanceField();
+    int runs = Math.max(5, 2_000_000 / cells);
+    for (int i = 0; i < runs; i++) {
+      field.compute(grid, 0, 0);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < runs; i++) {
+      field.compute(grid, 0, 0);
+    }
+    double ms = (System.nanoTime() - start) / 1e6 / runs;
+    System.out.printf("%-12s %-10d %.4f%n", w + "x" + h, cells * 25 / 40, ms);
+  }
+}
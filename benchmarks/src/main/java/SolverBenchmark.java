@@ -0,0 +1,77 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import java.util.Random;
+
+// solves random boards, plays each solution through DungeonEngine to check
+// it really wins in the claimed steps and score, and reports solve time
+// usage: java -cp benchmarks/target/benchmarks.jar SolverBenchmark [boards] [width height]
+public class SolverBenchmark
+{
+  public static void main(String[] args)
+  {
+    int boards = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int w = args.length > 2 ? Integer.parseInt(args[1]) : 8;
+    int h = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+    PrintStream report = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    DungeonEngine engine = new DungeonEngine(w, h);
+    engine.setBoardCache(null);
+    Solver solver = new Solver();
+    Random seeds = new Random(3);
+
+    int solved = 0;
+    int wrong = 0;
+    long steps = 0;
+    long nanos = 0;
+    for (int i = 0; i < boards; i++) {
+      engine.createBoard(seeds.nextLong());
+      long start = System.nanoTime();
+      Solver.Solution s = solver.solve(engine.getLayout());
+      nanos += System.nanoTime() - start;
+      if (s == null) {
+        continue;
+      }
+      solved++;
+      steps += s.steps;
+      if (!wins(engine, s)) {
+        wrong++;
+        report.println("seed " + engine.getSeed() + " solution does not replay");
+      }
+    }
+    System.setOut(report);
+    System.out.printf("%dx%d: %d/%d solved, %d failed replay, mean par %.2f steps, %.3f ms per solve%n",
+        w, h, solved, boards, wrong, (double)steps / Math.max(1, solved), nanos / 1e6 / boards);
+  }
+
+  // score rules from GameSession.processCommand
+  private static boolean wins(DungeonEngine engine, Solver.Solution s)
+  {
+    engine.replay();
+    int step = DungeonEngine.SPACE_SIZE;
+    int score = 0;
+    for (String c : s.commands) {
+      Command cmd = Command.parse(c);
+      int result;
+      if (cmd.isMove()) {
+        result = engine.movePlayer(cmd.dx * step, cmd.dy * step);
+        score += result + 1;
+      } else if (cmd.isJump()) {
+        result = engine.jumpPlayer(cmd.dx * step, cmd.dy * step);
+        score += result + 1;
+      } else if (cmd == Command.PICKUP) {
+        result = engine.pickupPrize();
+        score += result;
+      } else {
+        result = engine.springAdjacentTraps();
+        score += result;
+      }
+      if (result < 0) {
+        return false;
+      }
+    }
+    return engine.getCoinsCollected() == engine.getTotalCoins()
+        && engine.getSteps() == s.steps && score == s.score;
+  }
+}
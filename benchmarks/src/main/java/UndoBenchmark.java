@@ -0,0 +1,92 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+// a random bot that backs out of every trap it jumps into with undo, then
+// takes back everything it did and does it all again; every undo and redo
+// must land on exactly the state it was in before. Reports the heap each
+// undo level keeps and the time for one undo or redo
+// usage: java -cp benchmarks/target/benchmarks.jar UndoBenchmark [commands]
+public class UndoBenchmark
+{
+  public static void main(String[] args)
+  {
+    int commands = args.length > 0 ? Integer.parseInt(args[0]) : GameSession.MAX_UNDO;
+    DungeonEngine engine = new DungeonEngine(40, 30);
+    engine.createBoard(11);
+    GameSession session = new GameSession(engine, "Gryffindor", null);
+    // moves, jumps, pickup, spring and now and then a typo
+    Command[] plays = Arrays.stream(Command.values()).filter(Command::isPlay).toArray(Command[]::new);
+    Random rand = new Random(4);
+
+    long before = usedHeap();
+    ArrayDeque<String> seen = new ArrayDeque<String>();
+    int backtracks = 0;
+    int wrong = 0;
+    int played = 0;
+    for (; played < commands && session.isPlaying(); played++) {
+      if (engine.isGameOver()) {
+        session.processCommand("undo");
+        backtracks++;
+        if (!seen.pop().equals(state(session))) {
+          wrong++;
+        }
+        continue;
+      }
+      seen.push(state(session));
+      if (rand.nextInt(20) == 0) {
+        session.processCommand("xyz");
+      } else {
+        session.processCommand(plays[rand.nextInt(plays.length)].alias);
+      }
+    }
+    int levels = seen.size();
+    String first = seen.peekLast();
+    // only the session's own history is left to measure once seen is gone
+    seen = null;
+    long kept = usedHeap() - before;
+
+    String last = state(session);
+    long start = System.nanoTime();
+    for (int i = 0; i < levels; i++) {
+      session.processCommand("undo");
+    }
+    long undoNanos = System.nanoTime() - start;
+    boolean undoOk = state(session).equals(first);
+
+    start = System.nanoTime();
+    for (int i = 0; i < levels; i++) {
+      session.processCommand("redo");
+    }
+    long redoNanos = System.nanoTime() - start;
+    boolean redoOk = state(session).equals(last);
+
+    System.out.printf("%d commands, %d backtracks out of traps, %d undo levels kept%n",
+        played, backtracks, levels);
+    System.out.printf("heap per undo level %.0f bytes (board 40x30 is %d bytes)%n",
+        (double)kept / levels, 40 * 30);
+    System.out.printf("undo %.2f us, redo %.2f us%n", undoNanos / 1e3 / levels, redoNanos / 1e3 / levels);
+    if (wrong > 0 || !undoOk || !redoOk) {
+      System.out.println("undo did not give back the state it should have: " + wrong
+          + " backtracks, undo all " + undoOk + ", redo all " + redoOk);
+    }
+  }
+
+  // everything a player could see or be scored on
+  private static String state(GameSession session)
+  {
+    DungeonEngine e = session.getEngine();
+    return Arrays.hashCode(e.getGrid().toArray()) + " " + e.getPlayerX() + "," + e.getPlayerY()
+        + " steps " + e.getSteps() + " score " + session.getScore() + " points " + session.getPoints()
+        + " over " + e.isGameOver() + " coins " + e.getCoinsCollected();
+  }
+
+  private static long usedHeap()
+  {
+    Runtime rt = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return rt.totalMemory() - rt.freeMemory();
+  }
+}
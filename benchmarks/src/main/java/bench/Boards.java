@@ -0,0 +1,59 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// createBoard on a new seed every call, never from the board cache. density
+// is the percent of cells that get an object, split between walls, prizes,
+// traps, rocks and barriers 12:3:4:3:3 as the 8x5 game does; 0 keeps the
+// game's own counts (25 objects whatever the size)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Boards
+{
+  @Param({ "8x5", "40x30", "200x200" })
+  public String size;
+
+  @Param({ "0", "5", "20" })
+  public int density;
+
+  private Object engine;
+  private long seed;
+
+  @Setup
+  public void setup() throws Throwable
+  {
+    int[] wh = Game.size(size);
+    engine = Game.engine(wh[0], wh[1], 0);
+    if (density > 0) {
+      int objects = Math.max(1, wh[0] * wh[1] * density / 100);
+      Game.SET_WALLS.invokeExact(engine, objects * 12 / 25);
+      Game.SET_PRIZES.invokeExact(engine, Math.max(1, objects * 3 / 25));
+      Game.SET_TRAPS.invokeExact(engine, objects * 4 / 25);
+      Game.SET_ROCKS.invokeExact(engine, objects * 3 / 25);
+      Game.SET_BARRIERS.invokeExact(engine, objects * 3 / 25);
+    }
+  }
+
+  @Benchmark
+  public Object createBoard() throws Throwable
+  {
+    Game.CREATE_BOARD.invokeExact(engine, ++seed);
+    return engine;
+  }
+}
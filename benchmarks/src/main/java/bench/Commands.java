@@ -0,0 +1,86 @@
+package bench;
+
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// typed commands: parsing alone, and processCommand, which parses, plays the
+// command and keeps its undo state, with and without GameMetrics timing it.
+// The words are every spelling a player can use plus a few typos, in random
+// order
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Commands
+{
+  // what a player types, long and short; nothing that ends or resets the game
+  private static final String[] WORDS = {
+    "right", "r", "left", "l", "up", "u", "down", "d",
+    "jumpright", "jr", "jumpleft", "jl", "jumpup", "ju", "jumpdown", "jd",
+    "pickup", "p", "spring", "s", "xyz", "jump", "rr",
+  };
+
+  private String[] typed = new String[1024];
+  private int next;
+  private Object engine;
+  private Object session;
+  private Object metrics;
+
+  @Setup
+  public void setup() throws Throwable
+  {
+    Random rand = new Random(3);
+    for (int i = 0; i < typed.length; i++) {
+      // a new String each time, as a console or socket would hand over
+      typed[i] = new String(WORDS[rand.nextInt(WORDS.length)]);
+    }
+    engine = Game.engine(40, 30, 1);
+    session = Game.NEW_SESSION.invokeExact(engine, "Gryffindor", (PrintStream)null);
+    // not registered with JMX, the timing is the same either way
+    metrics = Game.NEW_METRICS.invokeExact();
+  }
+
+  @Benchmark
+  public Object parse() throws Throwable
+  {
+    return (Object)Game.PARSE_COMMAND.invokeExact(typed[next++ & 1023]);
+  }
+
+  // a game that is caught or won starts over, as rarely as a bot's would
+  @Benchmark
+  public int processCommand() throws Throwable
+  {
+    return play(null);
+  }
+
+  @Benchmark
+  public int processCommandTimed() throws Throwable
+  {
+    return play(metrics);
+  }
+
+  private int play(Object m) throws Throwable
+  {
+    Game.SET_METRICS.invokeExact(session, m);
+    Game.PROCESS_COMMAND.invokeExact(session, typed[next++ & 1023]);
+    if ((boolean)Game.IS_GAME_OVER.invokeExact(engine) || !(boolean)Game.IS_PLAYING.invokeExact(session)) {
+      session = Game.NEW_SESSION.invokeExact(engine, "Gryffindor", (PrintStream)null);
+      return (int)Game.REPLAY.invokeExact(engine);
+    }
+    return next;
+  }
+}
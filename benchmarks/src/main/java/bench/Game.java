@@ -0,0 +1,138 @@
+package bench;
+
+import java.awt.Graphics;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+// the game's classes live in the unnamed package, which no named package can
+// import, and JMH will not generate code for benchmarks outside one. So the
+// benchmarks reach the game through these handles instead; being static
+// final they are constants to the JIT, which inlines straight through them
+// the way it would a direct call. Game objects are passed around as Object
+final class Game
+{
+  static final MethodHandle NEW_ENGINE = constructor("DungeonEngine", int.class, int.class);
+  static final MethodHandle SET_OUTPUT = method("DungeonEngine", "setOutput", void.class, PrintStream.class);
+  static final MethodHandle SET_BOARD_CACHE = method("DungeonEngine", "setBoardCache", void.class,
+      type("BoardCache"));
+  static final MethodHandle SET_WALLS = method("DungeonEngine", "setWalls", void.class, int.class);
+  static final MethodHandle SET_PRIZES = method("DungeonEngine", "setPrizes", void.class, int.class);
+  static final MethodHandle SET_TRAPS = method("DungeonEngine", "setTraps", void.class, int.class);
+  static final MethodHandle SET_ROCKS = method("DungeonEngine", "setRocks", void.class, int.class);
+  static final MethodHandle SET_BARRIERS = method("DungeonEngine", "setBarriers", void.class, int.class);
+  static final MethodHandle CREATE_BOARD = method("DungeonEngine", "createBoard", void.class, long.class);
+  static final MethodHandle MOVE_PLAYER = method("DungeonEngine", "movePlayer", int.class, int.class, int.class);
+  static final MethodHandle JUMP_PLAYER = method("DungeonEngine", "jumpPlayer", int.class, int.class, int.class);
+  static final MethodHandle PICKUP_PRIZE = method("DungeonEngine", "pickupPrize", int.class);
+  static final MethodHandle SPRING_ADJACENT_TRAPS = method("DungeonEngine", "springAdjacentTraps", int.class);
+  static final MethodHandle IS_GAME_OVER = method("DungeonEngine", "isGameOver", boolean.class);
+  static final MethodHandle REPLAY = method("DungeonEngine", "replay", int.class);
+  static final MethodHandle GET_PRIZES_LEFT = method("DungeonEngine", "getPrizesLeft", int.class);
+
+  static final MethodHandle NEW_SESSION = constructor("GameSession", type("DungeonEngine"), String.class,
+      PrintStream.class);
+  static final MethodHandle PROCESS_COMMAND = method("GameSession", "processCommand", void.class, String.class);
+  static final MethodHandle IS_PLAYING = method("GameSession", "isPlaying", boolean.class);
+  static final MethodHandle SET_METRICS = method("GameSession", "setMetrics", void.class, type("GameMetrics"));
+  static final MethodHandle NEW_METRICS = constructor("GameMetrics");
+  static final MethodHandle PARSE_COMMAND = staticMethod("Command", "parse", type("Command"), String.class);
+
+  static final MethodHandle NEW_LOG = constructor("GameLog", PrintStream.class, type("GameLog$Level"));
+  static final MethodHandle ASYNC_LOG = staticMethod("GameLog", "async", type("GameLog"), java.io.OutputStream.class,
+      type("GameLog$Level"), int.class);
+  static final MethodHandle LOG_LEVEL = staticMethod("GameLog", "level", type("GameLog$Level"), String.class);
+  static final MethodHandle LOG_PLAYER = method("GameLog", "player", void.class, String.class, long.class);
+  static final MethodHandle LOG_IS_DEBUG = method("GameLog", "isDebug", boolean.class);
+  static final MethodHandle LOG_DEBUG = method("GameLog", "debug", void.class, String.class);
+  static final MethodHandle LOG_CLOSE = method("GameLog", "close", void.class);
+
+  static final MethodHandle LOAD_SPRITES = staticMethod("SpriteAtlas", "load", type("SpriteAtlas"));
+  static final MethodHandle NEW_GUI = constructor("GameGUI", String.class, type("DungeonEngine"),
+      type("SpriteAtlas"), boolean.class);
+  static final MethodHandle PAINT_COMPONENT = method("GameGUI", "paintComponent", void.class, Graphics.class);
+
+  static final int SPACE_SIZE = 60;
+
+  private Game()
+  {
+  }
+
+  // a silent engine on a board made from seed, generated rather than cached
+  static Object engine(int w, int h, long seed) throws Throwable
+  {
+    Object engine = NEW_ENGINE.invokeExact(w, h);
+    SET_OUTPUT.invokeExact(engine, (PrintStream)null);
+    SET_BOARD_CACHE.invokeExact(engine, (Object)null);
+    CREATE_BOARD.invokeExact(engine, seed);
+    return engine;
+  }
+
+  // "8x5" as { 8, 5 }
+  static int[] size(String s)
+  {
+    String[] dims = s.split("x");
+    return new int[] { Integer.parseInt(dims[0]), Integer.parseInt(dims[1]) };
+  }
+
+  static Class<?> type(String name)
+  {
+    try {
+      return Class.forName(name);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("game class " + name + " is not on the classpath", e);
+    }
+  }
+
+  private static MethodHandle constructor(String cls, Class<?>... params)
+  {
+    try {
+      Class<?> c = type(cls);
+      return generic(lookup(c).findConstructor(c, MethodType.methodType(void.class, params)));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("no such constructor in " + cls, e);
+    }
+  }
+
+  private static MethodHandle method(String cls, String name, Class<?> ret, Class<?>... params)
+  {
+    try {
+      Class<?> c = type(cls);
+      return generic(lookup(c).findVirtual(c, name, MethodType.methodType(ret, params)));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("no method " + cls + "." + name, e);
+    }
+  }
+
+  private static MethodHandle staticMethod(String cls, String name, Class<?> ret, Class<?>... params)
+  {
+    try {
+      Class<?> c = type(cls);
+      return generic(lookup(c).findStatic(c, name, MethodType.methodType(ret, params)));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("no method " + cls + "." + name, e);
+    }
+  }
+
+  // package-private members too; everything on the classpath is one module
+  private static MethodHandles.Lookup lookup(Class<?> c) throws IllegalAccessException
+  {
+    return MethodHandles.privateLookupIn(c, MethodHandles.lookup());
+  }
+
+  // game types, which cannot be written here, become Object
+  private static MethodHandle generic(MethodHandle mh)
+  {
+    MethodType t = mh.type();
+    for (int i = 0; i < t.parameterCount(); i++) {
+      if (t.parameterType(i).getPackageName().isEmpty() && !t.parameterType(i).isPrimitive()) {
+        t = t.changeParameterType(i, Object.class);
+      }
+    }
+    if (t.returnType().getPackageName().isEmpty() && !t.returnType().isPrimitive()) {
+      t = t.changeReturnType(Object.class);
+    }
+    return mh.asType(t);
+  }
+}
@@ -0,0 +1,84 @@
+package bench;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// what a game message costs the game thread: written straight to a stream
+// that flushes every line as the console does, handed to GameLog's writer
+// thread, and a debug line on a log that is not showing them. The bytes go
+// to the null device, so each flush is a real write call but nothing waits
+// on a terminal. The game thread outruns the writer here, so async counts
+// the messages dropped while the ring is full too, the price the game pays
+// instead of waiting
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Logging
+{
+  private Object direct;
+  private Object async;
+  private Object info;
+  private long n;
+
+  @Setup
+  public void setup() throws Throwable
+  {
+    Object level = Game.LOG_LEVEL.invokeExact("info");
+    direct = Game.NEW_LOG.invokeExact(new PrintStream(nullDevice(), true), level);
+    async = Game.ASYNC_LOG.invokeExact(nullDevice(), level, 4096);
+    info = direct;
+  }
+
+  private static OutputStream nullDevice() throws IOException
+  {
+    return new FileOutputStream(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null");
+  }
+
+  @TearDown
+  public void tearDown() throws Throwable
+  {
+    Game.LOG_CLOSE.invokeExact(async);
+  }
+
+  @Benchmark
+  public long direct() throws Throwable
+  {
+    Game.LOG_PLAYER.invokeExact(direct, "Points: ", ++n);
+    return n;
+  }
+
+  @Benchmark
+  public long async() throws Throwable
+  {
+    Game.LOG_PLAYER.invokeExact(async, "Points: ", ++n);
+    return n;
+  }
+
+  @Benchmark
+  public long debugOff() throws Throwable
+  {
+    ++n;
+    if ((boolean)Game.LOG_IS_DEBUG.invokeExact(info)) {
+      Game.LOG_DEBUG.invokeExact(info, "Step from " + n + "," + n + " blocked by a rock");
+    }
+    return n;
+  }
+}
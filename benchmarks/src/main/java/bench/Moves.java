@@ -0,0 +1,99 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// the engine calls one turn is made of: moves and jumps in random directions
+// (into walls, off the board and into traps as often as a bot would), and
+// picking up and springing, both where there is something and, as is far
+// more common, where there is not. A jump that ends the game replays the
+// board, once in every few hundred calls
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Moves
+{
+  @Param({ "8x5", "40x30", "200x200" })
+  public String size;
+
+  private Object engine;
+  // directions to step in, cycled through
+  private int[] dx = new int[1024];
+  private int[] dy = new int[1024];
+  private int next;
+
+  @Setup
+  public void setup() throws Throwable
+  {
+    int[] wh = Game.size(size);
+    engine = Game.engine(wh[0], wh[1], 1);
+    Random rand = new Random(2);
+    for (int i = 0; i < dx.length; i++) {
+      int d = rand.nextInt(4);
+      dx[i] = d == 0 ? 1 : d == 1 ? -1 : 0;
+      dy[i] = d == 2 ? 1 : d == 3 ? -1 : 0;
+    }
+  }
+
+  @Benchmark
+  public int movePlayer() throws Throwable
+  {
+    int i = next++ & 1023;
+    return (int)Game.MOVE_PLAYER.invokeExact(engine, dx[i] * Game.SPACE_SIZE, dy[i] * Game.SPACE_SIZE);
+  }
+
+  @Benchmark
+  public int jumpPlayer() throws Throwable
+  {
+    int i = next++ & 1023;
+    int result = (int)Game.JUMP_PLAYER.invokeExact(engine, dx[i] * 2 * Game.SPACE_SIZE,
+        dy[i] * 2 * Game.SPACE_SIZE);
+    if ((boolean)Game.IS_GAME_OVER.invokeExact(engine)) {
+      result += (int)Game.REPLAY.invokeExact(engine);
+    }
+    return result;
+  }
+
+  // where nothing is, the usual case
+  @Benchmark
+  public int pickupNothing() throws Throwable
+  {
+    return (int)Game.PICKUP_PRIZE.invokeExact(engine);
+  }
+
+  @Benchmark
+  public int springNothing() throws Throwable
+  {
+    return (int)Game.SPRING_ADJACENT_TRAPS.invokeExact(engine);
+  }
+
+  // a bot's turn: a step, then pick up and spring whatever is there; the
+  // board starts over once every prize is gone
+  @Benchmark
+  public int moveAndAct() throws Throwable
+  {
+    int i = next++ & 1023;
+    int result = (int)Game.MOVE_PLAYER.invokeExact(engine, dx[i] * Game.SPACE_SIZE, dy[i] * Game.SPACE_SIZE);
+    result += (int)Game.PICKUP_PRIZE.invokeExact(engine);
+    result += (int)Game.SPRING_ADJACENT_TRAPS.invokeExact(engine);
+    if ((int)Game.GET_PRIZES_LEFT.invokeExact(engine) == 0) {
+      result += (int)Game.REPLAY.invokeExact(engine);
+    }
+    return result;
+  }
+}
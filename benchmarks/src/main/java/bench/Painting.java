@@ -0,0 +1,74 @@
+package bench;
+
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// GameGUI.paintComponent into an offscreen image, the whole view as after a
+// new board and one cell as after a move. Sprites are read from the working
+// directory, so run from the game's directory or they draw as nothing
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class Painting
+{
+  @Param({ "8x5", "40x30" })
+  public String size;
+
+  private Object gui;
+  private BufferedImage frame;
+  private Graphics2D whole;
+  private Graphics2D cell;
+
+  @Setup
+  public void setup() throws Throwable
+  {
+    int[] wh = Game.size(size);
+    Object engine = Game.engine(wh[0], wh[1], 1);
+    Object sprites = Game.LOAD_SPRITES.invokeExact();
+    gui = Game.NEW_GUI.invokeExact("Gryffindor", engine, sprites, false);
+    Component c = (Component)gui;
+    frame = new BufferedImage(c.getWidth(), c.getHeight(), BufferedImage.TYPE_INT_RGB);
+    whole = frame.createGraphics();
+    cell = frame.createGraphics();
+    cell.setClip(Game.SPACE_SIZE, Game.SPACE_SIZE, Game.SPACE_SIZE, Game.SPACE_SIZE);
+  }
+
+  @TearDown
+  public void tearDown()
+  {
+    whole.dispose();
+    cell.dispose();
+  }
+
+  @Benchmark
+  public BufferedImage paintView() throws Throwable
+  {
+    Game.PAINT_COMPONENT.invokeExact(gui, (java.awt.Graphics)whole);
+    return frame;
+  }
+
+  @Benchmark
+  public BufferedImage paintCell() throws Throwable
+  {
+    Game.PAINT_COMPONENT.invokeExact(gui, (java.awt.Graphics)cell);
+    return frame;
+  }
+}
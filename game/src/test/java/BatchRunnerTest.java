@@ -0,0 +1,51 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+// scripts played through BatchRunner end as the same commands typed at the
+// game would
+public class BatchRunnerTest
+{
+  @Test
+  public void solutionScriptsWinWithPar() throws IOException
+  {
+    DungeonEngine engine = new DungeonEngine();
+    engine.setOutput(null);
+    for (long seed = 0; seed < 50; seed++) {
+      engine.createBoard(seed);
+      Solver.Solution s = new Solver().solve(engine.getLayout());
+      assertNotNull(s, "seed " + seed);
+      GameSession g = run(seed, String.join("\n", s.commands) + "\n");
+      assertEquals(GameSession.Outcome.WON, g.getOutcome(), "seed " + seed);
+      assertEquals(s.score, g.getScore(), "seed " + seed);
+      assertEquals(s.steps, g.getSteps(), "seed " + seed);
+    }
+  }
+
+  @Test
+  public void linesAfterTheEndAreIgnored() throws IOException
+  {
+    GameSession quit = run(3, "r\nq\n");
+    GameSession more = run(3, "r\nq\nr\nd\nr\n");
+    assertEquals(GameSession.Outcome.QUIT, more.getOutcome());
+    assertEquals(quit.getScore(), more.getScore());
+    assertEquals(quit.getSteps(), more.getSteps());
+  }
+
+  @Test
+  public void invalidLinesCostTwoAndBlankOnesNothing() throws IOException
+  {
+    assertEquals(-2, run(3, "north\n\n   \n").getScore());
+  }
+
+  private static GameSession run(long seed, String script) throws IOException
+  {
+    return BatchRunner.run(seed, DungeonEngine.GRID_W, DungeonEngine.GRID_H,
+        new BufferedReader(new StringReader(script)));
+  }
+}
@@ -0,0 +1,141 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+// boards from BoardGenerator, from nearly empty to as crowded as they get
+public class BoardGeneratorTest
+{
+  private static final int[][] SIZES = { {8, 5}, {40, 30}, {200, 200} };
+  private static final double[] DENSITIES = { 0.05, 0.25, 0.50, 0.75, 0.95 };
+  private static final int OBJECTS = OccupancyGrid.TRAP | OccupancyGrid.PRIZE | OccupancyGrid.ROCK
+      | OccupancyGrid.BARRIER;
+  private static final int SOLID = OccupancyGrid.ROCK | OccupancyGrid.BARRIER;
+
+  @Test
+  public void objectsNeverOverlapAndSolidsNeverTouch()
+  {
+    for (int[] size : SIZES) {
+      for (double density : DENSITIES) {
+        for (long seed = 0; seed < 5; seed++) {
+          OccupancyGrid grid = new OccupancyGrid(size[0], size[1]);
+          BoardLayout layout = generate(grid, density, seed);
+          String board = size[0] + "x" + size[1] + " density " + density + " seed " + seed;
+
+          int seen = 0;
+          for (int cell = 0; cell < size[0] * size[1]; cell++) {
+            int objects = grid.flags(cell) & OBJECTS;
+            assertTrue(Integer.bitCount(objects) <= 1, "two objects on cell " + cell + " of " + board);
+            seen += Integer.bitCount(objects);
+            if ((objects & SOLID) != 0) {
+              assertFalse(grid.nextTo(cell % size[0], cell / size[0], SOLID),
+                  "rock or barrier next to another on cell " + cell + " of " + board);
+            }
+          }
+          assertEquals(0, grid.flags(0) & SOLID, "rock or barrier on the start cell of " + board);
+          assertEquals(layout.getTrapCells().length + layout.getPrizeCells().length
+              + layout.getRockCells().length + layout.getBarrierCells().length, seen, "objects on " + board);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void trapsAndPrizesAreAllPlaced()
+  {
+    OccupancyGrid grid = new OccupancyGrid(40, 30);
+    BoardLayout layout = new BoardGenerator().generate(grid, 1, 100, 80, 300, 90, 90);
+    assertEquals(100, layout.getTrapCells().length);
+    assertEquals(80, layout.getPrizeCells().length);
+    assertEquals(300, layout.getWallEdges().length);
+  }
+
+  @Test
+  public void cellsAreSortedAndWallsDistinct()
+  {
+    BoardLayout layout = generate(new OccupancyGrid(200, 200), 0.5, 3);
+    for (int[] cells : new int[][] { layout.getTrapCells(), layout.getPrizeCells(), layout.getRockCells(),
+        layout.getBarrierCells() }) {
+      for (int i = 1; i < cells.length; i++) {
+        assertTrue(cells[i - 1] < cells[i], "cells out of order at " + i);
+      }
+    }
+    // walls come in the order they were drawn
+    int[] walls = layout.getWallEdges().clone();
+    Arrays.sort(walls);
+    for (int i = 1; i < walls.length; i++) {
+      assertTrue(walls[i - 1] < walls[i], "wall " + walls[i] + " placed twice");
+    }
+  }
+
+  @Test
+  public void repairLeavesEveryPrizeReachable()
+  {
+    OccupancyGrid grid = new OccupancyGrid(8, 5);
+    BoardGenerator generator = new BoardGenerator();
+    DistanceField field = new DistanceField();
+    int repaired = 0;
+    for (long seed = 0; seed < 20_000; seed++) {
+      grid.clearAll();
+      BoardLayout layout = generator.generate(grid, seed, 4, 3, 12, 3, 3);
+      if (generator.getRocksRemoved() > 0) {
+        repaired++;
+      }
+      field.compute(grid, 0, 0);
+      for (int prize : layout.getPrizeCells()) {
+        assertTrue(field.reachable(prize), "prize " + prize + " out of reach on seed " + seed);
+      }
+    }
+    assertTrue(repaired > 0, "no board needed a rock taken out, so none was repaired");
+  }
+
+  @Test
+  public void repairLeavesCrowdedBoardsReachable()
+  {
+    DistanceField field = new DistanceField();
+    for (double density : DENSITIES) {
+      for (long seed = 0; seed < 20; seed++) {
+        OccupancyGrid grid = new OccupancyGrid(40, 30);
+        BoardLayout layout = generate(grid, density, seed);
+        field.compute(grid, 0, 0);
+        for (int prize : layout.getPrizeCells()) {
+          assertTrue(field.reachable(prize), "prize " + prize + " out of reach at density " + density
+              + " seed " + seed);
+        }
+      }
+    }
+  }
+
+  // the distance field is only an estimate of the rules; the solver plays
+  // them exactly, so every repaired default board must have a way through
+  @Test
+  public void repairedBoardsCanBeWon()
+  {
+    OccupancyGrid grid = new OccupancyGrid(8, 5);
+    BoardGenerator generator = new BoardGenerator();
+    int checked = 0;
+    for (long seed = 0; checked < 50; seed++) {
+      grid.clearAll();
+      BoardLayout layout = generator.generate(grid, seed, 4, 3, 12, 3, 3);
+      if (generator.getRocksRemoved() > 0) {
+        assertTrue(new Solver().solve(layout) != null, "repaired board from seed " + seed + " cannot be won");
+        checked++;
+      }
+    }
+  }
+
+  // objects split 4:3:3:3 between traps, prizes, rocks and barriers as on
+  // the default board, with walls on the edges
+  static BoardLayout generate(OccupancyGrid grid, double density, long seed)
+  {
+    int objects = Math.max(4, (int)(grid.getWidth() * grid.getHeight() * density));
+    int traps = objects * 4 / 13;
+    int prizes = objects * 3 / 13;
+    int rocks = objects * 3 / 13;
+    int barriers = objects - traps - prizes - rocks;
+    return new BoardGenerator().generate(grid, seed, traps, prizes, objects * 12 / 13, rocks, barriers);
+  }
+}
@@ -0,0 +1,74 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+// Command.parse must read everything the old equals chain in
+// EscapeRoom.processCommand did, the same way
+public class CommandTest
+{
+  @Test
+  public void readsEveryOldCommand()
+  {
+    assertEquals(Command.RIGHT, Command.parse("right"));
+    assertEquals(Command.RIGHT, Command.parse("r"));
+    assertEquals(Command.LEFT, Command.parse("left"));
+    assertEquals(Command.LEFT, Command.parse("l"));
+    assertEquals(Command.UP, Command.parse("up"));
+    assertEquals(Command.UP, Command.parse("u"));
+    assertEquals(Command.DOWN, Command.parse("down"));
+    assertEquals(Command.DOWN, Command.parse("d"));
+    assertEquals(Command.JUMP_RIGHT, Command.parse("jr"));
+    assertEquals(Command.JUMP_RIGHT, Command.parse("jumpright"));
+    assertEquals(Command.JUMP_LEFT, Command.parse("jl"));
+    assertEquals(Command.JUMP_LEFT, Command.parse("jumpleft"));
+    assertEquals(Command.JUMP_UP, Command.parse("ju"));
+    assertEquals(Command.JUMP_UP, Command.parse("jumpup"));
+    assertEquals(Command.JUMP_DOWN, Command.parse("jd"));
+    assertEquals(Command.JUMP_DOWN, Command.parse("jumpdown"));
+    assertEquals(Command.PICKUP, Command.parse("pickup"));
+    assertEquals(Command.PICKUP, Command.parse("p"));
+    assertEquals(Command.SPRING, Command.parse("spring"));
+    assertEquals(Command.SPRING, Command.parse("s"));
+    assertEquals(Command.HELP, Command.parse("help"));
+    assertEquals(Command.HELP, Command.parse("?"));
+    assertEquals(Command.REPLAY, Command.parse("replay"));
+    assertEquals(Command.QUIT, Command.parse("quit"));
+    assertEquals(Command.QUIT, Command.parse("q"));
+  }
+
+  @Test
+  public void rejectsAnythingElse()
+  {
+    for (String s : new String[] { "", "jump", "rr", "north", "x", "R", " r", "quit now" }) {
+      assertNull(Command.parse(s), "\"" + s + "\"");
+    }
+  }
+
+  @Test
+  public void wordsAndAliasesReadBack()
+  {
+    for (Command c : Command.values()) {
+      assertEquals(c, Command.parse(c.word));
+      assertEquals(c, Command.parse(c.alias));
+    }
+  }
+
+  @Test
+  public void movesAndJumps()
+  {
+    for (Command c : Command.values()) {
+      int reach = Math.abs(c.dx) + Math.abs(c.dy);
+      assertEquals(c.isMove() ? 1 : c.isJump() ? 2 : 0, reach, c.name());
+    }
+  }
+
+  // undo takes back exactly these, whatever order the constants are in
+  @Test
+  public void playsAreMovesJumpsPickupAndSpring()
+  {
+    for (Command c : Command.values()) {
+      assertEquals(c.isMove() || c.isJump() || c == Command.PICKUP || c == Command.SPRING, c.isPlay(), c.name());
+    }
+  }
+}
@@ -0,0 +1,79 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// starting over, on the same board or the next one
+public class DungeonEngineTest
+{
+  private static final int S = DungeonEngine.SPACE_SIZE;
+
+  @Test
+  public void replayPutsTheBoardBackAsItWasMade()
+  {
+    for (int[] size : new int[][] { {8, 5}, {40, 30} }) {
+      for (long seed = 0; seed < 20; seed++) {
+        DungeonEngine played = engine(size[0], size[1], seed);
+        play(played, new Random(seed), 200);
+        played.replay();
+        DungeonEngine fresh = engine(size[0], size[1], seed);
+        assertSame(fresh, played, size[0] + "x" + size[1] + " seed " + seed);
+      }
+    }
+  }
+
+  @Test
+  public void newBoardFollowsFromTheSeed()
+  {
+    DungeonEngine a = engine(8, 5, 11);
+    DungeonEngine b = engine(8, 5, 11);
+    play(a, new Random(1), 50);
+    a.newBoard();
+    b.newBoard();
+    assertSame(b, a, "board after seed 11");
+  }
+
+  private static DungeonEngine engine(int w, int h, long seed)
+  {
+    DungeonEngine engine = new DungeonEngine(w, h);
+    engine.setOutput(null);
+    engine.setBoardCache(null);
+    engine.createBoard(seed);
+    return engine;
+  }
+
+  // random moves, jumps, springs and pickups, starting over if caught
+  private static void play(DungeonEngine engine, Random rand, int commands)
+  {
+    for (int i = 0; i < commands; i++) {
+      int dx = rand.nextInt(3) - 1;
+      int dy = dx == 0 ? (rand.nextBoolean() ? 1 : -1) : 0;
+      switch (rand.nextInt(4)) {
+        case 0: engine.movePlayer(dx * S, dy * S); break;
+        case 1: engine.jumpPlayer(2 * dx * S, 2 * dy * S); break;
+        case 2: engine.springAdjacentTraps(); break;
+        default: engine.pickupPrize(); break;
+      }
+      if (engine.isGameOver()) {
+        engine.replay();
+      }
+    }
+  }
+
+  private static void assertSame(DungeonEngine expected, DungeonEngine actual, String board)
+  {
+    assertEquals(expected.getSeed(), actual.getSeed(), board);
+    assertArrayEquals(expected.getGrid().toArray(), actual.getGrid().toArray(), board);
+    assertEquals(expected.getPlayerX(), actual.getPlayerX(), board);
+    assertEquals(expected.getPlayerY(), actual.getPlayerY(), board);
+    assertEquals(0, actual.getSteps(), board);
+    assertEquals(0, actual.getCoinsCollected(), board);
+    assertEquals(expected.getPrizesLeft(), actual.getPrizesLeft(), board);
+    assertEquals(expected.getTrapsLeft(), actual.getTrapsLeft(), board);
+    assertEquals(expected.getBarriersLeft(), actual.getBarriersLeft(), board);
+    assertFalse(actual.isGameOver(), board);
+  }
+}
@@ -0,0 +1,126 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// undo and redo must land on exactly the state the game was in
+public class GameSessionTest
+{
+  private static final Command[] PLAYS = Arrays.stream(Command.values()).filter(Command::isPlay)
+      .toArray(Command[]::new);
+
+  @Test
+  public void undoBacksOutOfTraps()
+  {
+    GameSession session = session(40, 30, 11);
+    Random rand = new Random(4);
+    ArrayDeque<String> seen = new ArrayDeque<String>();
+    int backtracks = 0;
+    for (int i = 0; i < 3000 && session.isPlaying(); i++) {
+      if (session.getEngine().isGameOver()) {
+        session.processCommand("undo");
+        assertEquals(seen.pop(), state(session), "after backing out of a trap at command " + i);
+        backtracks++;
+        continue;
+      }
+      seen.push(state(session));
+      playRandom(session, rand);
+    }
+    assertTrue(backtracks > 0, "never jumped into a trap, so never backed out of one");
+  }
+
+  @Test
+  public void undoAllThenRedoAllRoundTrips()
+  {
+    GameSession session = session(40, 30, 11);
+    Random rand = new Random(7);
+    String first = state(session);
+    // commands that can be undone, backing out of traps as it goes
+    int levels = 0;
+    for (int i = 0; i < 2000 && session.isPlaying(); i++) {
+      if (session.getEngine().isGameOver()) {
+        session.processCommand("undo");
+        levels--;
+      } else {
+        playRandom(session, rand);
+        levels++;
+      }
+    }
+    assertTrue(session.isPlaying() && !session.getEngine().isGameOver());
+    String last = state(session);
+    for (int i = 0; i < levels; i++) {
+      session.processCommand("undo");
+    }
+    assertEquals(first, state(session));
+    for (int i = 0; i < levels; i++) {
+      session.processCommand("redo");
+    }
+    assertEquals(last, state(session));
+  }
+
+  @Test
+  public void undoAndRedoWithNothingLeftChangeNothing()
+  {
+    GameSession session = session(8, 5, 3);
+    String start = state(session);
+    session.processCommand("undo");
+    session.processCommand("redo");
+    assertEquals(start, state(session));
+  }
+
+  @Test
+  public void aNewCommandDropsWhatWasUndone()
+  {
+    GameSession session = session(8, 5, 3);
+    session.processCommand("xyz");
+    session.processCommand("undo");
+    session.processCommand("xyz");
+    String after = state(session);
+    session.processCommand("redo");
+    assertEquals(after, state(session));
+  }
+
+  @Test
+  public void historyIsBounded()
+  {
+    GameSession session = session(8, 5, 3);
+    for (int i = 0; i < GameSession.MAX_UNDO + 5; i++) {
+      session.processCommand("xyz");
+    }
+    for (int i = 0; i < GameSession.MAX_UNDO + 5; i++) {
+      session.processCommand("undo");
+    }
+    assertEquals(-2 * 5, session.getScore());
+  }
+
+  private static GameSession session(int w, int h, long seed)
+  {
+    DungeonEngine engine = new DungeonEngine(w, h);
+    engine.setBoardCache(null);
+    engine.createBoard(seed);
+    return new GameSession(engine, "Gryffindor", null);
+  }
+
+  // moves, jumps, pickup, spring and now and then a typo
+  private static void playRandom(GameSession session, Random rand)
+  {
+    if (rand.nextInt(20) == 0) {
+      session.processCommand("xyz");
+    } else {
+      session.processCommand(PLAYS[rand.nextInt(PLAYS.length)].alias);
+    }
+  }
+
+  // everything a player could see or be scored on
+  static String state(GameSession session)
+  {
+    DungeonEngine e = session.getEngine();
+    return Arrays.toString(e.getGrid().toArray()) + " " + e.getPlayerX() + "," + e.getPlayerY()
+        + " steps " + e.getSteps() + " score " + session.getScore() + " points " + session.getPoints()
+        + " over " + e.isGameOver() + " coins " + e.getCoinsCollected();
+  }
+}
@@ -0,0 +1,112 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Rectangle;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// the grid must answer every collision question the way the Rectangle scans
+// DungeonEngine used before it did, cell for cell
+public class OccupancyGridTest
+{
+  private static final int S = DungeonEngine.SPACE_SIZE;
+  // the player's box is 40px square at the cell's corner
+  private static final int PLAYER = 40;
+
+  private Rectangle[] walls;
+  private Rectangle[] traps;
+  private Rectangle[] rocks;
+  private Rectangle[] barriers;
+  private OccupancyGrid grid;
+
+  @Test
+  public void defaultBoardMatchesScans()
+  {
+    for (long seed = 0; seed < 50; seed++) {
+      check(8, 5, seed);
+    }
+  }
+
+  @Test
+  public void largeBoardMatchesScans()
+  {
+    check(40, 30, 42);
+  }
+
+  private void check(int w, int h, long seed)
+  {
+    int cells = w * h;
+    build(w, h, Math.max(1, cells * 12 / 40), Math.max(1, cells * 4 / 40), Math.max(1, cells * 3 / 40),
+        Math.max(1, cells * 3 / 40), new Random(seed));
+    for (int row = 0; row < h; row++) {
+      for (int col = 0; col < w; col++) {
+        String at = "seed " + seed + " cell " + col + "," + row;
+        assertEquals(scanMove(col * S, row * S), grid.has(col, row, OccupancyGrid.ROCK | OccupancyGrid.BARRIER),
+            "move at " + at);
+        assertEquals(scanJump(col * S, row * S), grid.jumpBlocked(col, row), "jump at " + at);
+        assertEquals(scanTrap(col * S, row * S), grid.has(col, row, OccupancyGrid.TRAP), "trap at " + at);
+      }
+    }
+  }
+
+  // objects as the old engine held them, and the same on the grid
+  private void build(int w, int h, int nWalls, int nTraps, int nRocks, int nBarriers, Random rand)
+  {
+    grid = new OccupancyGrid(w, h);
+    walls = new Rectangle[nWalls];
+    for (int i = 0; i < nWalls; i++) {
+      int col = rand.nextInt(w);
+      int row = rand.nextInt(h);
+      if (rand.nextBoolean()) {
+        walls[i] = new Rectangle(col * S + S - 5, row * S, 8, S);
+        grid.set(col, row, OccupancyGrid.WALL_RIGHT);
+      } else {
+        walls[i] = new Rectangle(col * S, row * S + S - 5, S, 8);
+        grid.set(col, row, OccupancyGrid.WALL_DOWN);
+      }
+    }
+    traps = place(nTraps, w, h, OccupancyGrid.TRAP, rand);
+    rocks = place(nRocks, w, h, OccupancyGrid.ROCK, rand);
+    barriers = place(nBarriers, w, h, OccupancyGrid.BARRIER, rand);
+  }
+
+  private Rectangle[] place(int n, int w, int h, int flag, Random rand)
+  {
+    Rectangle[] out = new Rectangle[n];
+    for (int i = 0; i < n; i++) {
+      int col = rand.nextInt(w);
+      int row = rand.nextInt(h);
+      out[i] = new Rectangle(col * S, row * S, S, S);
+      grid.set(col, row, flag);
+    }
+    return out;
+  }
+
+  private boolean overlaps(Rectangle[] rects, int x, int y)
+  {
+    for (Rectangle r : rects) {
+      if (x < r.x + r.width && x + PLAYER > r.x && y < r.y + r.height && y + PLAYER > r.y) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // the checks DungeonEngine made before the grid: a step into a rock or
+  // barrier, a jump into a wall's edge or a barrier, landing on a trap
+  private boolean scanMove(int x, int y)
+  {
+    return overlaps(rocks, x, y) || overlaps(barriers, x, y);
+  }
+
+  private boolean scanJump(int x, int y)
+  {
+    return overlaps(walls, x, y) || overlaps(barriers, x, y);
+  }
+
+  private boolean scanTrap(int x, int y)
+  {
+    return overlaps(traps, x, y);
+  }
+}
@@ -0,0 +1,193 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// a game saved and loaded back, into the same session or a new one, must be
+// exactly the game that was saved; one that cannot be loaded changes nothing
+public class SaveStoreTest
+{
+  // slot layout, from SaveStore
+  private static final int HEADER = 16;
+  private static final int SLOT = 88;
+  private static final int PRIZES = 28;
+  private static final int MASKS = 64;
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void gamesLoadIntoNewSessionsAsSaved() throws IOException
+  {
+    Random rand = new Random(6);
+    int games = 300;
+    String[] states = new String[games];
+    try (SaveStore store = SaveStore.open(dir.resolve("saves"), games)) {
+      for (int i = 0; i < games; i++) {
+        GameSession session = session(8, 5, i);
+        play(session, rand, 30);
+        states[i] = state(session);
+        store.save(i, session);
+      }
+    }
+    // and from the file, not just the mapping that wrote it
+    try (SaveStore store = SaveStore.open(dir.resolve("saves"), 1)) {
+      assertEquals(games, store.getSlots());
+      for (int i = 0; i < games; i++) {
+        GameSession loaded = new GameSession(new DungeonEngine(8, 5), "Gryffindor", null);
+        assertTrue(store.load(i, loaded));
+        assertEquals(states[i], state(loaded), "slot " + i);
+      }
+    }
+  }
+
+  @Test
+  public void otherCountsLoadAsSaved() throws IOException
+  {
+    try (SaveStore store = SaveStore.open(dir.resolve("saves"), 1)) {
+      DungeonEngine engine = new DungeonEngine(20, 10);
+      engine.setWalls(30);
+      engine.setPrizes(12);
+      engine.setTraps(9);
+      engine.setRocks(8);
+      engine.setBarriers(7);
+      engine.createBoard(5);
+      GameSession session = new GameSession(engine, "Gryffindor", null);
+      play(session, new Random(2), 100);
+      String saved = state(session);
+      store.save(0, session);
+
+      GameSession loaded = new GameSession(new DungeonEngine(20, 10), "Gryffindor", null);
+      store.load(0, loaded);
+      assertEquals(saved, state(loaded));
+      assertEquals(12, loaded.getEngine().getTotalPrizes());
+    }
+  }
+
+  @Test
+  public void loadGoesBackInTheSameSession() throws IOException
+  {
+    try (SaveStore store = SaveStore.open(dir.resolve("saves"), 2)) {
+      GameSession session = session(8, 5, 1);
+      play(session, new Random(3), 10);
+      String saved = state(session);
+      assertEquals("Saved to slot 1", store.command("save 1", session));
+      play(session, new Random(4), 10);
+      session.processCommand("newboard");
+      assertTrue(store.command("load 1", session).startsWith("Loaded slot 1"));
+      assertEquals(saved, state(session));
+    }
+  }
+
+  @Test
+  public void emptySlotLoadsNothing() throws IOException
+  {
+    try (SaveStore store = SaveStore.open(dir.resolve("saves"), 2)) {
+      GameSession session = session(8, 5, 1);
+      String before = state(session);
+      assertFalse(store.load(1, session));
+      assertEquals(before, state(session));
+    }
+  }
+
+  @Test
+  public void badSlotLeavesTheGameAsItWas() throws IOException
+  {
+    Path file = dir.resolve("saves");
+    try (SaveStore store = SaveStore.open(file, 2)) {
+      store.save(1, session(8, 5, 7));
+    }
+    // a prize bit past the board's prizes
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      ch.write(ByteBuffer.wrap(new byte[] { -1, -1, -1, -1, -1, -1, -1, -1 }), HEADER + SLOT + MASKS);
+    }
+    try (SaveStore store = SaveStore.open(file, 2)) {
+      GameSession session = session(8, 5, 2);
+      play(session, new Random(1), 10);
+      String before = state(session);
+      assertThrows(IllegalArgumentException.class, () -> store.load(1, session));
+      assertEquals(before, state(session));
+    }
+  }
+
+  @Test
+  public void countsPastTheBoardAreRefused() throws IOException
+  {
+    Path file = dir.resolve("saves");
+    try (SaveStore store = SaveStore.open(file, 1)) {
+      store.save(0, session(8, 5, 7));
+    }
+    // the prize count, as a slot from some other version might have it
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      ch.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE), HEADER + PRIZES);
+    }
+    try (SaveStore store = SaveStore.open(file, 1)) {
+      GameSession session = session(8, 5, 2);
+      String before = state(session);
+      assertTrue(store.command("load 0", session).startsWith("Could not load"));
+      assertEquals(before, state(session));
+    }
+  }
+
+  @Test
+  public void otherSizeIsRefused() throws IOException
+  {
+    try (SaveStore store = SaveStore.open(dir.resolve("saves"), 1)) {
+      store.save(0, session(8, 5, 1));
+      GameSession session = session(10, 6, 1);
+      String before = state(session);
+      assertTrue(store.command("load 0", session).startsWith("Could not load"));
+      assertEquals(before, state(session));
+    }
+  }
+
+  @Test
+  public void tooManyObjectsForTheFileIsRefused() throws IOException
+  {
+    try (SaveStore store = SaveStore.open(dir.resolve("saves"), 1)) {
+      DungeonEngine engine = new DungeonEngine(20, 20);
+      engine.setPrizes(70);
+      engine.createBoard(1);
+      GameSession session = new GameSession(engine, "Gryffindor", null);
+      assertThrows(IllegalArgumentException.class, () -> store.save(0, session));
+      assertFalse(store.isUsed(0));
+    }
+  }
+
+  private static GameSession session(int w, int h, long seed)
+  {
+    DungeonEngine engine = new DungeonEngine(w, h);
+    engine.createBoard(seed);
+    return new GameSession(engine, "Gryffindor", null);
+  }
+
+  private static void play(GameSession session, Random rand, int commands)
+  {
+    Command[] plays = Arrays.stream(Command.values()).filter(Command::isPlay).toArray(Command[]::new);
+    for (int c = 0; c < commands && session.isPlaying(); c++) {
+      session.process(rand.nextInt(20) == 0 ? null : plays[rand.nextInt(plays.length)]);
+    }
+  }
+
+  // everything a player could see or be scored on
+  private static String state(GameSession session)
+  {
+    DungeonEngine e = session.getEngine();
+    return e.getSeed() + " " + Arrays.toString(e.getGrid().toArray()) + " " + e.getPlayerX() + ","
+        + e.getPlayerY() + " steps " + e.getSteps() + " score " + session.getScore()
+        + " points " + session.getPoints() + " over " + e.isGameOver() + " coins " + e.getCoinsCollected()
+        + " left " + e.getPrizesLeft() + " " + e.getTrapsLeft() + " " + e.getBarriersLeft();
+  }
+}
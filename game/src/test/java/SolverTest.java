@@ -0,0 +1,221 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+// the Solver against a plain breadth-first search that plays every command
+// through DungeonEngine itself, springing and picking up whenever it likes,
+// on boards small enough to search completely
+public class SolverTest
+{
+  private static final int STEP = DungeonEngine.SPACE_SIZE;
+  private static final Command[] MOVES = { Command.RIGHT, Command.LEFT, Command.DOWN, Command.UP,
+      Command.JUMP_RIGHT, Command.JUMP_LEFT, Command.JUMP_DOWN, Command.JUMP_UP };
+
+  // a position in the search: the board as the engine had it, and the score
+  private static final class Node
+  {
+    final BoardSnapshot board;
+    final int score;
+
+    Node(BoardSnapshot board, int score)
+    {
+      this.board = board;
+      this.score = score;
+    }
+  }
+
+  @Test
+  public void smallBoardsAreSolvedOptimally()
+  {
+    for (long seed = 0; seed < 100; seed++) {
+      DungeonEngine engine = engine(5, 4, 4, 2, 2, 2, 2);
+      engine.createBoard(seed);
+      check(engine);
+    }
+  }
+
+  @Test
+  public void defaultBoardsAreSolvedOptimally()
+  {
+    for (long seed = 0; seed < 20; seed++) {
+      DungeonEngine engine = new DungeonEngine(8, 5);
+      engine.setBoardCache(null);
+      engine.setOutput(null);
+      engine.createBoard(seed);
+      check(engine);
+    }
+  }
+
+  @Test
+  public void sameBoardGivesSameSolution()
+  {
+    // big enough that levels are expanded in parallel
+    DungeonEngine engine = new DungeonEngine(14, 9);
+    engine.setBoardCache(null);
+    engine.setOutput(null);
+    engine.createBoard(5);
+    Solver.Solution a = new Solver().solve(engine.getLayout());
+    Solver.Solution b = new Solver().solve(engine.getLayout());
+    assertNotNull(a);
+    assertEquals(a.steps, b.steps);
+    assertEquals(a.score, b.score);
+    assertEquals(Arrays.asList(a.commands), Arrays.asList(b.commands));
+  }
+
+  @Test
+  public void givesUpPastMaxStates()
+  {
+    DungeonEngine engine = new DungeonEngine(14, 9);
+    engine.setBoardCache(null);
+    engine.setOutput(null);
+    engine.createBoard(5);
+    Solver solver = new Solver();
+    solver.setMaxStates(100);
+    assertNull(solver.solve(engine.getLayout()));
+  }
+
+  // only boards that cannot reach the background limit are solved unasked
+  @Test
+  public void onlySmallBoardsAreSolvedInTheBackground()
+  {
+    DungeonEngine engine = new DungeonEngine(DungeonEngine.GRID_W, DungeonEngine.GRID_H);
+    engine.setOutput(null);
+    engine.createBoard(1);
+    assertTrue(Solver.small(engine.getLayout()));
+    assertNotNull(engine.getLayout().par().join());
+
+    engine = new DungeonEngine(2000, 2000);
+    engine.setOutput(null);
+    engine.createBoard(1);
+    assertFalse(Solver.small(engine.getLayout()));
+  }
+
+  private static DungeonEngine engine(int w, int h, int walls, int prizes, int traps, int rocks, int barriers)
+  {
+    DungeonEngine engine = new DungeonEngine(w, h);
+    engine.setBoardCache(null);
+    engine.setOutput(null);
+    engine.setWalls(walls);
+    engine.setPrizes(prizes);
+    engine.setTraps(traps);
+    engine.setRocks(rocks);
+    engine.setBarriers(barriers);
+    return engine;
+  }
+
+  private static void check(DungeonEngine engine)
+  {
+    String board = engine.getGridWidth() + "x" + engine.getGridHeight() + " seed " + engine.getSeed();
+    BoardSnapshot start = engine.getSnapshot();
+    Solver.Solution s = new Solver().solve(engine.getLayout());
+    int[] best = search(engine);
+    engine.restore(start, 0, false);
+    if (best == null) {
+      assertNull(s, "solved a board that cannot be won, " + board);
+      return;
+    }
+    assertNotNull(s, "no solution for " + board);
+    assertEquals(best[0], s.steps, "steps on " + board);
+    assertEquals(best[1], s.score, "score on " + board);
+    assertTrue(wins(engine, s), "solution does not play out on " + board);
+  }
+
+  // fewest steps to collect every prize and the best score in that many,
+  // null if it cannot be done
+  private static int[] search(DungeonEngine engine)
+  {
+    Set<String> seen = new HashSet<String>();
+    List<Node> level = new ArrayList<Node>();
+    level.add(new Node(engine.getSnapshot(), 0));
+    seen.add(key(engine.getSnapshot()));
+    for (int steps = 0; !level.isEmpty(); steps++) {
+      // springing and picking up take no steps, so they stay on this level
+      for (int i = 0; i < level.size(); i++) {
+        Node n = level.get(i);
+        engine.restore(n.board, steps, false);
+        int left = engine.getTrapsLeft() + engine.getBarriersLeft();
+        int result = engine.springAdjacentTraps();
+        if (engine.getTrapsLeft() + engine.getBarriersLeft() < left) {
+          visit(engine, n.score + result, seen, level);
+        }
+        engine.restore(n.board, steps, false);
+        int coins = engine.getCoinsCollected();
+        result = engine.pickupPrize();
+        if (engine.getCoinsCollected() > coins) {
+          visit(engine, n.score + result, seen, level);
+        }
+      }
+      int best = Integer.MIN_VALUE;
+      for (Node n : level) {
+        if (n.board.getPrizesLeft() == 0) {
+          best = Math.max(best, n.score);
+        }
+      }
+      if (best != Integer.MIN_VALUE) {
+        return new int[] { steps, best };
+      }
+
+      List<Node> next = new ArrayList<Node>();
+      for (Node n : level) {
+        for (Command c : MOVES) {
+          engine.restore(n.board, steps, false);
+          int result = c.isJump() ? engine.jumpPlayer(c.dx * STEP, c.dy * STEP)
+              : engine.movePlayer(c.dx * STEP, c.dy * STEP);
+          if (result == 0 && !engine.isGameOver()) {
+            visit(engine, n.score + 1, seen, next);
+          }
+        }
+      }
+      level = next;
+    }
+    return null;
+  }
+
+  private static void visit(DungeonEngine engine, int score, Set<String> seen, List<Node> into)
+  {
+    BoardSnapshot b = engine.getSnapshot();
+    if (seen.add(key(b))) {
+      into.add(new Node(b, score));
+    }
+  }
+
+  private static String key(BoardSnapshot b)
+  {
+    return b.getPlayerX() + "," + b.getPlayerY() + Arrays.toString(b.prizeBits()) + Arrays.toString(b.trapBits())
+        + Arrays.toString(b.barrierBits());
+  }
+
+  // play the commands from the start, scoring as GameSession does
+  private static boolean wins(DungeonEngine engine, Solver.Solution s)
+  {
+    int score = 0;
+    for (String command : s.commands) {
+      Command c = Command.parse(command);
+      int result;
+      if (c.isMove() || c.isJump()) {
+        result = c.isJump() ? engine.jumpPlayer(c.dx * STEP, c.dy * STEP) : engine.movePlayer(c.dx * STEP, c.dy * STEP);
+        score += result + 1;
+      } else if (c == Command.PICKUP) {
+        result = engine.pickupPrize();
+        score += result;
+      } else {
+        result = engine.springAdjacentTraps();
+        score += result;
+      }
+      if (result < 0) {
+        return false;
+      }
+    }
+    return engine.getPrizesLeft() == 0 && engine.getSteps() == s.steps && score == s.score;
+  }
+}